@@ -2,10 +2,12 @@ package org.jhandron;
 
 import com.formdev.flatlaf.FlatIntelliJLaf;
 import com.formdev.flatlaf.FlatLaf;
+import org.jhandron.repository.RecipeRepository;
 import org.jhandron.ui.MainFrame;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
 
 public final class RecipeNotebookApp {
 
@@ -22,8 +24,20 @@ public final class RecipeNotebookApp {
             testEnvironment = false;
         }
 
+        // Opening a local store replays its log, so it happens here rather than on the EDT.
+        final RecipeRepository recipes;
+        try {
+            recipes = RecipeRepository.open(testEnvironment);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Unable to open recipe storage: " + ex.getMessage());
+            JOptionPane.showMessageDialog(null, "Unable to open recipe storage: " + ex.getMessage(),
+                    "Recipe Notebook", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+            return;
+        }
+
         SwingUtilities.invokeLater(() -> {
-            MainFrame frame = new MainFrame(testEnvironment);
+            MainFrame frame = new MainFrame(recipes, testEnvironment);
             frame.setVisible(true);
         });
 
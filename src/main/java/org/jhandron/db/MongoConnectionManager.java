@@ -6,7 +6,12 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeCodec;
+import org.jhandron.model.RecipeSummary;
+import org.jhandron.model.RecipeSummaryCodec;
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
 
 import java.util.Objects;
 
@@ -22,6 +27,9 @@ public class MongoConnectionManager {
         ConnectionString connectionString = new ConnectionString(uri);
         MongoClientSettings settings = MongoClientSettings.builder()
                 .applyConnectionString(connectionString)
+                .codecRegistry(CodecRegistries.fromRegistries(
+                        CodecRegistries.fromCodecs(new RecipeCodec(), new RecipeSummaryCodec()),
+                        MongoClientSettings.getDefaultCodecRegistry()))
                 .build();
         this.client = MongoClients.create(settings);
         this.database = client.getDatabase(databaseName);
@@ -38,6 +46,18 @@ public class MongoConnectionManager {
         return p_testEnvironment ? database.getCollection("recipes-dev") : database.getCollection("recipes");
     }
 
+    public MongoCollection<Recipe> getTypedRecipeCollection(boolean p_testEnvironment) {
+        return getRecipeCollection(p_testEnvironment).withDocumentClass(Recipe.class);
+    }
+
+    public MongoCollection<RecipeSummary> getRecipeSummaryCollection(boolean p_testEnvironment) {
+        return getRecipeCollection(p_testEnvironment).withDocumentClass(RecipeSummary.class);
+    }
+
+    public MongoCollection<Document> getRevisionCollection(boolean p_testEnvironment) {
+        return p_testEnvironment ? database.getCollection("revisions-dev") : database.getCollection("revisions");
+    }
+
     public void close() {
         client.close();
     }
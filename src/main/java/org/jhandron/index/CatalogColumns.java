@@ -0,0 +1,263 @@
+package org.jhandron.index;
+
+import org.bson.types.ObjectId;
+import org.jhandron.model.RecipeSummary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Ids are found through an open-addressing table over the id column, so no boxed key is kept per recipe.
+final class CatalogColumns {
+    private static final int ID_INTS = 3;
+
+    private int size;
+    private int liveCount;
+    private int[] ids = new int[16 * ID_INTS];
+    private long[] revisions = new long[16];
+    private final BitSet live = new BitSet();
+    private PackedStrings names = new PackedStrings();
+    private PackedInts ingredients = new PackedInts();
+    private PackedInts tags = new PackedInts();
+    private PackedInts related = new PackedInts();
+    // Doc id + 1 per slot, 0 for empty; kept at most half full.
+    private int[] table = new int[32];
+
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    boolean isLive(int doc) {
+        return live.get(doc);
+    }
+
+    int find(ObjectId id) {
+        if (id == null) {
+            return -1;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(id.toByteArray());
+        return find(bytes.getInt(), bytes.getInt(), bytes.getInt());
+    }
+
+    int add(RecipeSummary recipe) {
+        int doc = size++;
+        if (size > revisions.length) {
+            revisions = Arrays.copyOf(revisions, revisions.length * 2);
+            ids = Arrays.copyOf(ids, revisions.length * ID_INTS);
+        }
+        writeId(ids, doc * ID_INTS, recipe.getId());
+        if (2 * (liveCount + 1) > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(doc);
+        live.set(doc);
+        liveCount++;
+        set(doc, recipe);
+        return doc;
+    }
+
+    void set(int doc, RecipeSummary recipe) {
+        revisions[doc] = recipe.getRevision();
+        names.set(doc, recipe.getName());
+        ingredients.set(doc, recipe.getIngredientIds());
+        tags.set(doc, recipe.getTagIds());
+        List<ObjectId> relatedIds = recipe.getRelatedRecipeIds();
+        int[] packed = new int[relatedIds.size() * ID_INTS];
+        for (int i = 0; i < relatedIds.size(); i++) {
+            writeId(packed, i * ID_INTS, relatedIds.get(i));
+        }
+        related.set(doc, packed);
+    }
+
+    void remove(int doc) {
+        if (!live.get(doc)) {
+            return;
+        }
+        delete(doc);
+        live.clear(doc);
+        liveCount--;
+        names.set(doc, null);
+        ingredients.set(doc, new int[0]);
+        tags.set(doc, new int[0]);
+        related.set(doc, new int[0]);
+    }
+
+    void clear() {
+        size = 0;
+        liveCount = 0;
+        live.clear();
+        names.clear();
+        ingredients.clear();
+        tags.clear();
+        related.clear();
+        Arrays.fill(table, 0);
+    }
+
+    RecipeSummary summary(int doc) {
+        if (!live.get(doc)) {
+            return null;
+        }
+        int count = related.length(doc) / ID_INTS;
+        List<ObjectId> relatedIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            relatedIds.add(relatedId(doc, i));
+        }
+        return new RecipeSummary(id(doc), names.get(doc), ingredientIds(doc), tagIds(doc), relatedIds,
+                revisions[doc]);
+    }
+
+    ObjectId id(int doc) {
+        return readId(ids, doc * ID_INTS);
+    }
+
+    String name(int doc) {
+        return names.get(doc);
+    }
+
+    long revision(int doc) {
+        return revisions[doc];
+    }
+
+    int[] ingredientIds(int doc) {
+        return ingredients.toArray(doc);
+    }
+
+    int[] tagIds(int doc) {
+        return tags.toArray(doc);
+    }
+
+    int relatedCount(int doc) {
+        return related.length(doc) / ID_INTS;
+    }
+
+    ObjectId relatedId(int doc, int index) {
+        int base = index * ID_INTS;
+        return readId(new int[]{related.get(doc, base), related.get(doc, base + 1), related.get(doc, base + 2)}, 0);
+    }
+
+    // -1 when the related recipe is not in the catalog.
+    int relatedDoc(int doc, int index) {
+        int base = index * ID_INTS;
+        return find(related.get(doc, base), related.get(doc, base + 1), related.get(doc, base + 2));
+    }
+
+    // Same order as RecipeCatalog.NAME_ORDER.
+    int compareByName(int a, int b) {
+        boolean nullA = names.isNull(a);
+        boolean nullB = names.isNull(b);
+        if (nullA || nullB) {
+            if (nullA != nullB) {
+                return nullA ? -1 : 1;
+            }
+        } else {
+            int byName = names.compare(a, b);
+            if (byName != 0) {
+                return byName;
+            }
+        }
+        for (int i = 0; i < ID_INTS; i++) {
+            int byId = Integer.compareUnsigned(ids[a * ID_INTS + i], ids[b * ID_INTS + i]);
+            if (byId != 0) {
+                return byId;
+            }
+        }
+        return 0;
+    }
+
+    long bytes() {
+        return 4L * ids.length + 8L * revisions.length + live.size() / 8 + 4L * table.length + names.bytes()
+                + ingredients.bytes() + tags.bytes() + related.bytes();
+    }
+
+    CatalogColumns copy() {
+        CatalogColumns copy = new CatalogColumns();
+        copy.size = size;
+        copy.liveCount = liveCount;
+        copy.ids = Arrays.copyOf(ids, ids.length);
+        copy.revisions = Arrays.copyOf(revisions, revisions.length);
+        copy.live.or(live);
+        copy.names = names.copy();
+        copy.ingredients = ingredients.copy();
+        copy.tags = tags.copy();
+        copy.related = related.copy();
+        copy.table = Arrays.copyOf(table, table.length);
+        return copy;
+    }
+
+    private int find(int a, int b, int c) {
+        int mask = table.length - 1;
+        for (int slot = hash(a, b, c) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int doc = table[slot] - 1;
+            int base = doc * ID_INTS;
+            if (ids[base] == a && ids[base + 1] == b && ids[base + 2] == c) {
+                return doc;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int doc) {
+        int mask = table.length - 1;
+        int slot = hashOf(doc) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = doc + 1;
+    }
+
+    // Linear probing without tombstones: entries after the hole move back if their probe passes over it.
+    private void delete(int doc) {
+        int mask = table.length - 1;
+        int hole = hashOf(doc) & mask;
+        while (table[hole] != doc + 1) {
+            hole = (hole + 1) & mask;
+        }
+        table[hole] = 0;
+        for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int home = hashOf(table[slot] - 1) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[hole] = table[slot];
+                table[slot] = 0;
+                hole = slot;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            insert(doc);
+        }
+    }
+
+    private int hashOf(int doc) {
+        int base = doc * ID_INTS;
+        return hash(ids[base], ids[base + 1], ids[base + 2]);
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9e3779b1 ^ b * 0x85ebca6b ^ c * 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private static void writeId(int[] target, int offset, ObjectId id) {
+        ByteBuffer bytes = ByteBuffer.wrap(id.toByteArray());
+        for (int i = 0; i < ID_INTS; i++) {
+            target[offset + i] = bytes.getInt();
+        }
+    }
+
+    private static ObjectId readId(int[] source, int offset) {
+        ByteBuffer bytes = ByteBuffer.allocate(ID_INTS * 4);
+        for (int i = 0; i < ID_INTS; i++) {
+            bytes.putInt(source[offset + i]);
+        }
+        return new ObjectId(bytes.flip());
+    }
+}
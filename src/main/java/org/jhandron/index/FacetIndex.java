@@ -0,0 +1,121 @@
+package org.jhandron.index;
+
+import org.jhandron.model.FacetCount;
+import org.jhandron.model.TermDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Values are folded like TokenIndex folds them and counted once per recipe.
+final class FacetIndex {
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> labels = new ArrayList<>();
+    private int[] slotByTerm = new int[0];
+    private int[] counts = new int[16];
+
+    void add(int[] termIds) {
+        for (int slot : distinctSlots(termIds)) {
+            counts[slot]++;
+        }
+    }
+
+    void remove(int[] termIds) {
+        for (int slot : distinctSlots(termIds)) {
+            counts[slot]--;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    int[] counts() {
+        return Arrays.copyOf(counts, labels.size());
+    }
+
+    // into must be at least as long as counts().
+    void count(int[] termIds, int[] into, int sign) {
+        for (int slot : distinctSlots(termIds)) {
+            into[slot] += sign;
+        }
+    }
+
+    int slotCount() {
+        return labels.size();
+    }
+
+    // Most common first, then alphabetically; values no recipe in the count carries are left out.
+    List<FacetCount> top(int[] counted, int limit) {
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (a, b) -> counted[a] != counted[b]
+                ? Integer.compare(counted[a], counted[b])
+                : labels.get(b).compareTo(labels.get(a)));
+        for (int slot = 0; slot < counted.length; slot++) {
+            if (counted[slot] <= 0) {
+                continue;
+            }
+            best.add(slot);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        FacetCount[] top = new FacetCount[best.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            int slot = best.poll();
+            top[i] = new FacetCount(labels.get(slot), counted[slot]);
+        }
+        return List.of(top);
+    }
+
+    private int[] distinctSlots(int[] termIds) {
+        int[] result = new int[termIds.length];
+        int n = 0;
+        for (int termId : termIds) {
+            int slot = slot(termId);
+            if (slot < 0) {
+                continue;
+            }
+            boolean seen = false;
+            for (int i = 0; i < n && !seen; i++) {
+                seen = result[i] == slot;
+            }
+            if (!seen) {
+                result[n++] = slot;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private int slot(int termId) {
+        if (termId < 0) {
+            return -1;
+        }
+        if (termId >= slotByTerm.length) {
+            int previous = slotByTerm.length;
+            slotByTerm = Arrays.copyOf(slotByTerm, Math.max(termId + 1, previous * 2));
+            Arrays.fill(slotByTerm, previous, slotByTerm.length, Integer.MIN_VALUE);
+        }
+        int slot = slotByTerm[termId];
+        if (slot == Integer.MIN_VALUE) {
+            String value = TERMS.normalized(termId);
+            if (value.isEmpty()) {
+                slot = -1;
+            } else {
+                slot = slots.computeIfAbsent(value, ignored -> {
+                    labels.add(value);
+                    return labels.size() - 1;
+                });
+                if (slot >= counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(slot + 1, counts.length * 2));
+                }
+            }
+            slotByTerm[termId] = slot;
+        }
+        return slot;
+    }
+}
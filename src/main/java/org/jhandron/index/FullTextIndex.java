@@ -0,0 +1,561 @@
+package org.jhandron.index;
+
+import org.bson.types.ObjectId;
+import org.jhandron.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Postings are append-only: a changed recipe gets a new doc and the old one stays deleted until compaction.
+public final class FullTextIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int INGREDIENT_WEIGHT = 2;
+    private static final int INSTRUCTION_WEIGHT = 1;
+    // Left between fields and between ingredients so a phrase cannot run from one into the next.
+    private static final int POSITION_GAP = 16;
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]*)\"");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "if", "in", "into", "is", "it", "of", "on", "or", "the", "then", "to", "until", "with");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, TermPostings> postings = new HashMap<>();
+    private final Map<ObjectId, Integer> docIds = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private ObjectId[] ids = new ObjectId[64];
+    private long[] revisions = new long[64];
+    private int[] lengths = new int[64];
+    // The postings each doc appears in, so deleting it can take it out of their live counts.
+    private TermPostings[][] docTerms = new TermPostings[64][];
+    private int docCount;
+    private int liveCount;
+    private int deletedSinceCompaction;
+    private long totalLength;
+
+    public void put(Recipe recipe) {
+        putAll(List.of(recipe));
+    }
+
+    public void putAll(Collection<Recipe> recipes) {
+        List<IndexedDoc> indexed = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            if (recipe != null && recipe.getId() != null) {
+                indexed.add(analyze(recipe));
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (IndexedDoc doc : indexed) {
+                Integer previous = docIds.get(doc.id());
+                if (previous != null) {
+                    if (doc.revision() != 0 && revisions[previous] > doc.revision()) {
+                        // A page read before a save must not put the older text back.
+                        continue;
+                    }
+                    delete(previous);
+                }
+                append(doc);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(ObjectId id) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = id == null ? null : docIds.get(id);
+            if (doc != null) {
+                delete(doc);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docIds.clear();
+            deleted.clear();
+            Arrays.fill(ids, 0, docCount, null);
+            Arrays.fill(docTerms, 0, docCount, null);
+            docCount = 0;
+            liveCount = 0;
+            deletedSinceCompaction = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Live docs plus deleted ones not yet compacted away.
+    int docSlots() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Quoted phrases must appear word for word; other words only add to the score.
+    public List<Hit> search(String query, int limit) {
+        List<List<String>> phrases = new ArrayList<>();
+        Matcher matcher = PHRASE.matcher(query == null ? "" : query);
+        while (matcher.find()) {
+            List<String> phrase = analyzeQuery(matcher.group(1));
+            if (!phrase.isEmpty()) {
+                phrases.add(phrase);
+            }
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : analyzeQuery(matcher.replaceAll(" "))) {
+            if (term != null) {
+                terms.add(term);
+            }
+        }
+        for (List<String> phrase : phrases) {
+            for (String term : phrase) {
+                if (term != null) {
+                    terms.add(term);
+                }
+            }
+        }
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return rank(terms, phrases, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> rank(Set<String> terms, List<List<String>> phrases, int limit) {
+        BitSet required = null;
+        for (List<String> phrase : phrases) {
+            BitSet matches = matchPhrase(phrase);
+            if (required == null) {
+                required = matches;
+            } else {
+                required.and(matches);
+            }
+        }
+        double averageLength = liveCount == 0 ? 1 : (double) totalLength / liveCount;
+        float[] scores = new float[docCount];
+        BitSet visited = new BitSet(docCount);
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (String term : terms) {
+            TermPostings list = postings.get(term);
+            if (list == null || list.live == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (liveCount - list.live + 0.5) / (list.live + 0.5));
+            Cursor cursor = new Cursor(list);
+            while (cursor.next()) {
+                int doc = cursor.doc;
+                if (deleted.get(doc) || (required != null && !required.get(doc))) {
+                    continue;
+                }
+                double frequency = cursor.frequency;
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                if (!visited.get(doc)) {
+                    visited.set(doc);
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += (float) (idf * frequency * (K1 + 1) / (frequency + norm));
+            }
+        }
+        // Keep the best `limit` docs in a min-heap so the rest are never sorted.
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+                (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Integer.compare(b, a));
+        for (int i = 0; i < touchedCount; i++) {
+            best.add(touched[i]);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        Hit[] hits = new Hit[best.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int doc = best.poll();
+            hits[i] = new Hit(ids[doc], scores[doc]);
+        }
+        return List.of(hits);
+    }
+
+    // Walks the postings of every word in step and compares positions only where all of them share a doc.
+    private BitSet matchPhrase(List<String> phrase) {
+        BitSet matches = new BitSet();
+        List<Cursor> cursors = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < phrase.size(); i++) {
+            if (phrase.get(i) == null) {
+                continue;
+            }
+            TermPostings list = postings.get(phrase.get(i));
+            if (list == null) {
+                return matches;
+            }
+            cursors.add(new Cursor(list));
+            offsets.add(i);
+        }
+        int[][] positions = new int[cursors.size()][];
+        Cursor first = cursors.get(0);
+        while (first.next()) {
+            int doc = first.doc;
+            if (deleted.get(doc)) {
+                continue;
+            }
+            boolean everyTerm = true;
+            for (int t = 1; t < cursors.size() && everyTerm; t++) {
+                everyTerm = cursors.get(t).advanceTo(doc);
+            }
+            if (!everyTerm) {
+                continue;
+            }
+            for (int t = 0; t < cursors.size(); t++) {
+                positions[t] = cursors.get(t).positions();
+            }
+            for (int position : positions[0]) {
+                boolean found = true;
+                for (int t = 1; t < cursors.size() && found; t++) {
+                    found = Arrays.binarySearch(positions[t], position + offsets.get(t)) >= 0;
+                }
+                if (found) {
+                    matches.set(doc);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void append(IndexedDoc indexed) {
+        int doc = docCount++;
+        if (doc == ids.length) {
+            ids = Arrays.copyOf(ids, doc * 2);
+            revisions = Arrays.copyOf(revisions, doc * 2);
+            lengths = Arrays.copyOf(lengths, doc * 2);
+            docTerms = Arrays.copyOf(docTerms, doc * 2);
+        }
+        ids[doc] = indexed.id();
+        revisions[doc] = indexed.revision();
+        lengths[doc] = indexed.length();
+        docIds.put(indexed.id(), doc);
+        liveCount++;
+        totalLength += indexed.length();
+        TermPostings[] lists = new TermPostings[indexed.terms().size()];
+        int i = 0;
+        for (Map.Entry<String, Occurrences> term : indexed.terms().entrySet()) {
+            TermPostings list = postings.computeIfAbsent(term.getKey(), ignored -> new TermPostings());
+            list.add(doc, term.getValue());
+            lists[i++] = list;
+        }
+        docTerms[doc] = lists;
+    }
+
+    private void delete(int doc) {
+        if (deleted.get(doc)) {
+            return;
+        }
+        deleted.set(doc);
+        docIds.remove(ids[doc], doc);
+        ids[doc] = null;
+        liveCount--;
+        deletedSinceCompaction++;
+        totalLength -= lengths[doc];
+        for (TermPostings list : docTerms[doc]) {
+            list.live--;
+        }
+        docTerms[doc] = null;
+    }
+
+    // Renumbers the live docs from zero so the per-doc arrays and rank's scores stay sized to the live set.
+    private void compactIfNeeded() {
+        if (deletedSinceCompaction < 1024 || deletedSinceCompaction < liveCount / 4) {
+            return;
+        }
+        int[] renumbered = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                renumbered[doc] = -1;
+                continue;
+            }
+            renumbered[doc] = next;
+            ids[next] = ids[doc];
+            revisions[next] = revisions[doc];
+            lengths[next] = lengths[doc];
+            docTerms[next] = docTerms[doc];
+            docIds.put(ids[next], next);
+            next++;
+        }
+        int capacity = Math.max(64, Integer.highestOneBit(Math.max(next, 1)) * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        revisions = Arrays.copyOf(revisions, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        docTerms = Arrays.copyOf(docTerms, capacity);
+        Arrays.fill(ids, next, capacity, null);
+        Arrays.fill(docTerms, next, capacity, null);
+        postings.values().removeIf(list -> list.compact(renumbered) == 0);
+        deleted.clear();
+        docCount = next;
+        deletedSinceCompaction = 0;
+    }
+
+    private static IndexedDoc analyze(Recipe recipe) {
+        Map<String, Occurrences> terms = new LinkedHashMap<>();
+        int position = addField(terms, recipe.getName(), 0, NAME_WEIGHT);
+        int length = position * NAME_WEIGHT;
+        for (String ingredient : recipe.getIngredients()) {
+            int start = position + POSITION_GAP;
+            position = addField(terms, ingredient, start, INGREDIENT_WEIGHT);
+            length += (position - start) * INGREDIENT_WEIGHT;
+        }
+        int start = position + POSITION_GAP;
+        position = addField(terms, recipe.getInstructions(), start, INSTRUCTION_WEIGHT);
+        length += (position - start) * INSTRUCTION_WEIGHT;
+        return new IndexedDoc(recipe.getId(), recipe.getRevision(), Math.max(length, 1), terms);
+    }
+
+    private static int addField(Map<String, Occurrences> terms, String text, int start, int weight) {
+        int position = start;
+        for (String word : TextTokens.split(text)) {
+            String term = STOP_WORDS.contains(word) ? null : stem(word);
+            if (term != null) {
+                terms.computeIfAbsent(term, ignored -> new Occurrences()).add(position, weight);
+            }
+            position++;
+        }
+        return position;
+    }
+
+    // Stop words stay in the list as nulls so phrases keep their spacing.
+    private static List<String> analyzeQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : TextTokens.split(text)) {
+            terms.add(STOP_WORDS.contains(word) ? null : stem(word));
+        }
+        while (!terms.isEmpty() && terms.get(0) == null) {
+            terms.remove(0);
+        }
+        return terms;
+    }
+
+    // Coarser than Porter, but queries and text are stemmed alike.
+    static String stem(String word) {
+        if (word.length() <= 3) {
+            return word;
+        }
+        String stem = word;
+        if (stem.endsWith("ies")) {
+            stem = stem.substring(0, stem.length() - 3) + "i";
+        } else if (stem.endsWith("sses")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("ches") || stem.endsWith("shes") || stem.endsWith("xes") || stem.endsWith("zes")
+                || stem.endsWith("oes")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us") && !stem.endsWith("is")) {
+            stem = stem.substring(0, stem.length() - 1);
+        } else if (stem.endsWith("ing") && stem.length() > 5) {
+            stem = undouble(stem.substring(0, stem.length() - 3));
+        } else if (stem.endsWith("ed") && stem.length() > 4) {
+            stem = undouble(stem.substring(0, stem.length() - 2));
+        }
+        if (stem.length() > 3 && stem.endsWith("e")) {
+            stem = stem.substring(0, stem.length() - 1);
+        } else if (stem.length() > 3 && stem.endsWith("y")) {
+            stem = stem.substring(0, stem.length() - 1) + "i";
+        }
+        return stem;
+    }
+
+    private static String undouble(String stem) {
+        int n = stem.length();
+        if (n > 2 && stem.charAt(n - 1) == stem.charAt(n - 2) && "lsfz".indexOf(stem.charAt(n - 1)) < 0
+                && "aeiou".indexOf(stem.charAt(n - 1)) < 0) {
+            return stem.substring(0, n - 1);
+        }
+        return stem;
+    }
+
+    public record Hit(ObjectId id, double score) {
+    }
+
+    private record IndexedDoc(ObjectId id, long revision, int length, Map<String, Occurrences> terms) {
+    }
+
+    private static final class Occurrences {
+        private int frequency;
+        private int[] positions = new int[2];
+        private int count;
+
+        void add(int position, int weight) {
+            frequency += weight;
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = position;
+        }
+    }
+
+    // Per doc: the doc gap, weighted frequency, position count and position gaps, all as varints.
+    private static final class TermPostings {
+        private byte[] data = new byte[8];
+        private int length;
+        private int size;
+        // Docs in this list that are not deleted; what ranking uses as the document frequency.
+        private int live;
+        private int lastDoc;
+
+        void add(int doc, Occurrences occurrences) {
+            ensureCapacity(15 + 5 * occurrences.count);
+            writeVarInt(doc - lastDoc);
+            writeVarInt(occurrences.frequency);
+            writeVarInt(occurrences.count);
+            int previous = 0;
+            for (int i = 0; i < occurrences.count; i++) {
+                writeVarInt(occurrences.positions[i] - previous);
+                previous = occurrences.positions[i];
+            }
+            lastDoc = doc;
+            size++;
+            live++;
+        }
+
+        // Positions are gaps within their own doc, so a kept doc's position bytes are copied as they are.
+        // Renumbering keeps docs in order, so the doc gaps stay positive.
+        int compact(int[] renumbered) {
+            TermPostings kept = new TermPostings();
+            Cursor cursor = new Cursor(this);
+            while (cursor.next()) {
+                int doc = renumbered[cursor.doc];
+                if (doc < 0) {
+                    continue;
+                }
+                int positionBytes = cursor.end - cursor.positionsStart;
+                kept.ensureCapacity(15 + positionBytes);
+                kept.writeVarInt(doc - kept.lastDoc);
+                kept.writeVarInt(cursor.frequency);
+                kept.writeVarInt(cursor.positionCount);
+                System.arraycopy(data, cursor.positionsStart, kept.data, kept.length, positionBytes);
+                kept.length += positionBytes;
+                kept.lastDoc = doc;
+                kept.size++;
+            }
+            data = Arrays.copyOf(kept.data, kept.length);
+            length = kept.length;
+            size = kept.size;
+            lastDoc = kept.lastDoc;
+            return size;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length + (data.length >> 1), length + extra));
+            }
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7f) != 0) {
+                data[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+
+    private static final class Cursor {
+        private final TermPostings list;
+        private int offset;
+        private int doc = -1;
+        private int frequency;
+        private int positionCount;
+        private int positionsStart;
+        private int end;
+
+        private Cursor(TermPostings list) {
+            this.list = list;
+        }
+
+        boolean next() {
+            if (end >= list.length) {
+                doc = Integer.MAX_VALUE;
+                return false;
+            }
+            offset = end;
+            doc = (doc < 0 ? 0 : doc) + readVarInt();
+            frequency = readVarInt();
+            positionCount = readVarInt();
+            positionsStart = offset;
+            for (int i = 0; i < positionCount; i++) {
+                while (list.data[offset++] < 0) {
+                    // continuation bytes
+                }
+            }
+            end = offset;
+            return true;
+        }
+
+        boolean advanceTo(int target) {
+            while (doc < target && next()) {
+                // postings are in doc order
+            }
+            return doc == target;
+        }
+
+        int[] positions() {
+            int[] positions = new int[positionCount];
+            offset = positionsStart;
+            int position = 0;
+            for (int i = 0; i < positionCount; i++) {
+                position += readVarInt();
+                positions[i] = position;
+            }
+            return positions;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = list.data[offset++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.jhandron.index;
+
+import org.jhandron.model.TermDictionary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Words whose recipes are gone keep empty postings until the next rebuild.
+final class FuzzyTermIndex {
+    private static final Pattern DIGITS = Pattern.compile("\\p{N}+");
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final Map<Integer, List<String>> termWords = new HashMap<>();
+    private Node root;
+
+    static List<String> words(String value) {
+        List<String> words = new ArrayList<>();
+        for (String word : TextTokens.split(value)) {
+            // A typo in a number is a different number; those are left to the exact filters.
+            if (!DIGITS.matcher(word).matches()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Short words would match almost anything at distance two.
+    static int maxDistance(String word) {
+        return word.length() < 3 ? 0 : word.length() < 6 ? 1 : 2;
+    }
+
+    void add(int doc, String name, int[] termIds) {
+        for (String word : words(name)) {
+            node(word).docs.add(doc);
+        }
+        for (int termId : termIds) {
+            for (String word : wordsOf(termId)) {
+                node(word).docs.add(doc);
+            }
+        }
+    }
+
+    void remove(int doc, String name, int[] termIds) {
+        for (String word : words(name)) {
+            removeDoc(word, doc);
+        }
+        for (int termId : termIds) {
+            for (String word : wordsOf(termId)) {
+                removeDoc(word, doc);
+            }
+        }
+    }
+
+    void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    // Each doc comes with its summed edit distance.
+    Ranked match(String query) {
+        int[] docs = null;
+        int[] distances = null;
+        for (String word : words(query)) {
+            int maxDistance = maxDistance(word);
+            BitSet[] levels = new BitSet[maxDistance + 1];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new BitSet();
+            }
+            search(word, maxDistance, levels);
+            BitSet all = new BitSet();
+            for (BitSet level : levels) {
+                all.or(level);
+            }
+            int[] wordDocs = all.stream().toArray();
+            int[] wordDistances = new int[wordDocs.length];
+            for (int i = 0; i < wordDocs.length; i++) {
+                int distance = 0;
+                while (!levels[distance].get(wordDocs[i])) {
+                    distance++;
+                }
+                wordDistances[i] = distance;
+            }
+            if (docs == null) {
+                docs = wordDocs;
+                distances = wordDistances;
+            } else {
+                Ranked both = intersect(docs, distances, wordDocs, wordDistances);
+                docs = both.docs();
+                distances = both.distances();
+            }
+            if (docs.length == 0) {
+                break;
+            }
+        }
+        return docs == null ? new Ranked(Postings.EMPTY, Postings.EMPTY) : new Ranked(docs, distances);
+    }
+
+    private void search(String word, int maxDistance, BitSet[] levels) {
+        if (root == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(word, node.word);
+            if (distance <= maxDistance) {
+                for (int i = 0; i < node.docs.size(); i++) {
+                    levels[distance].set(node.docs.get(i));
+                }
+            }
+            // Anything under child i is exactly i away from this node, so by the triangle inequality only
+            // children within maxDistance of our own distance can hold a match.
+            int last = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int i = Math.max(1, distance - maxDistance); i <= last; i++) {
+                if (node.children[i] != null) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+    }
+
+    private Node node(String word) {
+        Node existing = nodes.get(word);
+        if (existing != null) {
+            return existing;
+        }
+        Node created = new Node(word);
+        nodes.put(word, created);
+        if (root == null) {
+            root = created;
+            return created;
+        }
+        Node parent = root;
+        while (true) {
+            int distance = distance(word, parent.word);
+            if (distance >= parent.children.length) {
+                parent.children = Arrays.copyOf(parent.children, distance + 1);
+            }
+            if (parent.children[distance] == null) {
+                parent.children[distance] = created;
+                return created;
+            }
+            parent = parent.children[distance];
+        }
+    }
+
+    private void removeDoc(String word, int doc) {
+        Node node = nodes.get(word);
+        if (node != null) {
+            node.docs.remove(doc);
+        }
+    }
+
+    private List<String> wordsOf(int termId) {
+        return termWords.computeIfAbsent(termId, id -> words(TERMS.term(id)));
+    }
+
+    private static Ranked intersect(int[] a, int[] aDistances, int[] b, int[] bDistances) {
+        int[] docs = new int[Math.min(a.length, b.length)];
+        int[] distances = new int[docs.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                docs[n] = a[i];
+                distances[n++] = aDistances[i++] + bDistances[j++];
+            }
+        }
+        return new Ranked(Arrays.copyOf(docs, n), Arrays.copyOf(distances, n));
+    }
+
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    record Ranked(int[] docs, int[] distances) {
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final String word;
+        private final PostingsList docs = new PostingsList();
+        private Node[] children = NO_CHILDREN;
+
+        private Node(String word) {
+            this.word = word;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.jhandron.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class NameTrigramIndex {
+    private static final int GRAM = 3;
+
+    private final Map<String, PostingsList> grams = new HashMap<>();
+    private final PostingsList shortNames = new PostingsList();
+    private final PackedStrings names = new PackedStrings();
+
+    void add(int doc, String name) {
+        String normalized = TokenIndex.normalize(name);
+        names.set(doc, normalized);
+        if (normalized.length() < GRAM) {
+            shortNames.add(doc);
+            return;
+        }
+        for (String gram : trigrams(normalized)) {
+            grams.computeIfAbsent(gram, key -> new PostingsList()).add(doc);
+        }
+    }
+
+    void remove(int doc) {
+        String normalized = names.get(doc);
+        if (normalized == null) {
+            return;
+        }
+        names.set(doc, null);
+        if (normalized.length() < GRAM) {
+            shortNames.remove(doc);
+            return;
+        }
+        for (String gram : trigrams(normalized)) {
+            PostingsList list = grams.get(gram);
+            if (list != null && list.remove(doc) && list.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    void clear() {
+        grams.clear();
+        names.clear();
+        shortNames.clear();
+    }
+
+    int[] match(String query) {
+        String needle = TokenIndex.normalize(query);
+        if (needle.isEmpty()) {
+            return Postings.EMPTY;
+        }
+        int[] candidates = needle.length() < GRAM ? shortQueryCandidates(needle) : gramCandidates(needle);
+        byte[] needleBytes = PackedStrings.utf8(needle);
+        int n = 0;
+        for (int doc : candidates) {
+            if (names.contains(doc, needleBytes)) {
+                candidates[n++] = doc;
+            }
+        }
+        return n == candidates.length ? candidates : Arrays.copyOf(candidates, n);
+    }
+
+    private int[] gramCandidates(String needle) {
+        List<PostingsList> lists = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            PostingsList list = grams.get(gram);
+            if (list == null) {
+                return Postings.EMPTY;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingsList::size));
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = Postings.intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private int[] shortQueryCandidates(String needle) {
+        // Queries shorter than a trigram match any gram that contains them, plus the unindexed short names.
+        List<PostingsList> lists = new ArrayList<>();
+        lists.add(shortNames);
+        for (Map.Entry<String, PostingsList> entry : grams.entrySet()) {
+            if (entry.getKey().contains(needle)) {
+                lists.add(entry.getValue());
+            }
+        }
+        return Postings.union(lists);
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM));
+        }
+        return result;
+    }
+}
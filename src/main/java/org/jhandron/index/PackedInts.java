@@ -0,0 +1,89 @@
+package org.jhandron.index;
+
+import java.util.Arrays;
+
+// Replaced slices stay as garbage until compaction copies the live ones down in slot order.
+final class PackedInts {
+    private static final int[] NONE = new int[0];
+
+    private int[] values = new int[64];
+    private int used;
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int slots;
+
+    void set(int slot, int[] slice) {
+        ensureSlot(slot);
+        // The old slice becomes garbage and must not be copied if the array is compacted below.
+        lengths[slot] = 0;
+        if (used + slice.length > values.length) {
+            makeRoom(slice.length);
+        }
+        System.arraycopy(slice, 0, values, used, slice.length);
+        offsets[slot] = used;
+        lengths[slot] = slice.length;
+        used += slice.length;
+    }
+
+    int length(int slot) {
+        return slot < slots ? lengths[slot] : 0;
+    }
+
+    int get(int slot, int index) {
+        return values[offsets[slot] + index];
+    }
+
+    int[] toArray(int slot) {
+        int length = length(slot);
+        return length == 0 ? NONE : Arrays.copyOfRange(values, offsets[slot], offsets[slot] + length);
+    }
+
+    void clear() {
+        used = 0;
+        slots = 0;
+    }
+
+    long bytes() {
+        return 4L * (values.length + offsets.length + lengths.length);
+    }
+
+    PackedInts copy() {
+        PackedInts copy = new PackedInts();
+        copy.values = Arrays.copyOf(values, used);
+        copy.used = used;
+        copy.offsets = Arrays.copyOf(offsets, slots);
+        copy.lengths = Arrays.copyOf(lengths, slots);
+        copy.slots = slots;
+        return copy;
+    }
+
+    private void ensureSlot(int slot) {
+        if (slot >= offsets.length) {
+            int capacity = Math.max(slot + 1, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        while (slots <= slot) {
+            offsets[slots] = used;
+            lengths[slots++] = 0;
+        }
+    }
+
+    private void makeRoom(int needed) {
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            live += lengths[slot];
+        }
+        int[] target = live < used / 2 && live + needed <= values.length
+                ? new int[values.length]
+                : new int[Math.max(values.length * 2, live + needed)];
+        int position = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            System.arraycopy(values, offsets[slot], target, position, lengths[slot]);
+            offsets[slot] = position;
+            position += lengths[slot];
+        }
+        values = target;
+        used = position;
+    }
+}
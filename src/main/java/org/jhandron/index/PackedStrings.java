@@ -0,0 +1,135 @@
+package org.jhandron.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+final class PackedStrings {
+    private static final int NULL_LENGTH = -1;
+
+    private byte[] bytes = new byte[256];
+    private int used;
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int slots;
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    void set(int slot, String value) {
+        ensureSlot(slot);
+        // The old slice becomes garbage and must not be copied if the array is compacted below.
+        lengths[slot] = NULL_LENGTH;
+        if (value == null) {
+            return;
+        }
+        byte[] encoded = utf8(value);
+        if (used + encoded.length > bytes.length) {
+            makeRoom(encoded.length);
+        }
+        System.arraycopy(encoded, 0, bytes, used, encoded.length);
+        offsets[slot] = used;
+        lengths[slot] = encoded.length;
+        used += encoded.length;
+    }
+
+    String get(int slot) {
+        if (slot >= slots || lengths[slot] == NULL_LENGTH) {
+            return null;
+        }
+        return new String(bytes, offsets[slot], lengths[slot], StandardCharsets.UTF_8);
+    }
+
+    boolean isNull(int slot) {
+        return slot >= slots || lengths[slot] == NULL_LENGTH;
+    }
+
+    boolean contains(int slot, byte[] needle) {
+        if (isNull(slot)) {
+            return false;
+        }
+        int start = offsets[slot];
+        int last = start + lengths[slot] - needle.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (bytes[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Byte order is code point order, which only disagrees with String.compareTo when a supplementary
+    // character meets one from U+E000 to U+FFFF; that pair is flipped.
+    int compare(int a, int b) {
+        int offsetA = offsets[a];
+        int offsetB = offsets[b];
+        int lengthA = lengths[a];
+        int lengthB = lengths[b];
+        int common = Math.min(lengthA, lengthB);
+        int i = Arrays.mismatch(bytes, offsetA, offsetA + common, bytes, offsetB, offsetB + common);
+        if (i < 0) {
+            return Integer.compare(lengthA, lengthB);
+        }
+        int byteA = bytes[offsetA + i] & 0xff;
+        int byteB = bytes[offsetB + i] & 0xff;
+        if ((byteA >= 0xf0 && byteB >= 0xee && byteB < 0xf0) || (byteB >= 0xf0 && byteA >= 0xee && byteA < 0xf0)) {
+            return byteA < byteB ? 1 : -1;
+        }
+        return byteA < byteB ? -1 : 1;
+    }
+
+    void clear() {
+        used = 0;
+        slots = 0;
+    }
+
+    long bytes() {
+        return bytes.length + 4L * (offsets.length + lengths.length);
+    }
+
+    PackedStrings copy() {
+        PackedStrings copy = new PackedStrings();
+        copy.bytes = Arrays.copyOf(bytes, used);
+        copy.used = used;
+        copy.offsets = Arrays.copyOf(offsets, slots);
+        copy.lengths = Arrays.copyOf(lengths, slots);
+        copy.slots = slots;
+        return copy;
+    }
+
+    private void ensureSlot(int slot) {
+        if (slot >= offsets.length) {
+            int capacity = Math.max(slot + 1, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        while (slots <= slot) {
+            offsets[slots] = used;
+            lengths[slots++] = NULL_LENGTH;
+        }
+    }
+
+    private void makeRoom(int needed) {
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            live += Math.max(lengths[slot], 0);
+        }
+        byte[] target = live < used / 2 && live + needed <= bytes.length
+                ? new byte[bytes.length]
+                : new byte[Math.max(bytes.length * 2, live + needed)];
+        int position = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (lengths[slot] > 0) {
+                System.arraycopy(bytes, offsets[slot], target, position, lengths[slot]);
+                offsets[slot] = position;
+                position += lengths[slot];
+            }
+        }
+        bytes = target;
+        used = position;
+    }
+}
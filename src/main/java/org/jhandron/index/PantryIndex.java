@@ -0,0 +1,100 @@
+package org.jhandron.index;
+
+import org.jhandron.model.TermDictionary;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Ingredient slots follow first appearance, so common ingredients share the first few bitmap words.
+final class PantryIndex {
+    private static final int[] NONE = new int[0];
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    // Two ints per word: the word number, then its mask.
+    private final PackedInts bitmaps = new PackedInts();
+    private int docCount;
+
+    void add(int doc, int[] ingredientIds) {
+        int[] words = new int[0];
+        for (int ingredientId : ingredientIds) {
+            String ingredient = TERMS.normalized(ingredientId);
+            if (ingredient.isEmpty()) {
+                continue;
+            }
+            int slot = slots.computeIfAbsent(ingredient, ignored -> slots.size());
+            if (slot >> 5 >= words.length) {
+                words = Arrays.copyOf(words, (slot >> 5) + 1);
+            }
+            words[slot >> 5] |= 1 << slot;
+        }
+        int nonEmpty = 0;
+        for (int word : words) {
+            if (word != 0) {
+                nonEmpty++;
+            }
+        }
+        int[] packed = new int[nonEmpty * 2];
+        int i = 0;
+        for (int w = 0; w < words.length; w++) {
+            if (words[w] != 0) {
+                packed[i++] = w;
+                packed[i++] = words[w];
+            }
+        }
+        bitmaps.set(doc, packed);
+        docCount = Math.max(docCount, doc + 1);
+    }
+
+    void remove(int doc) {
+        if (doc < docCount) {
+            bitmaps.set(doc, NONE);
+        }
+    }
+
+    void clear() {
+        slots.clear();
+        bitmaps.clear();
+        docCount = 0;
+    }
+
+    // Grouped by how many ingredients are missing.
+    int[][] match(Collection<String> pantry, int maxMissing) {
+        int[] have = new int[(slots.size() >> 5) + 1];
+        for (String ingredient : pantry) {
+            Integer slot = slots.get(TermDictionary.normalize(ingredient));
+            if (slot != null) {
+                have[slot >> 5] |= 1 << slot;
+            }
+        }
+        int[][] buckets = new int[maxMissing + 1][];
+        int[] counts = new int[maxMissing + 1];
+        for (int i = 0; i <= maxMissing; i++) {
+            buckets[i] = new int[16];
+        }
+        for (int doc = 0; doc < docCount; doc++) {
+            int length = bitmaps.length(doc);
+            int covered = 0;
+            int missing = 0;
+            for (int i = 0; i < length && missing <= maxMissing; i += 2) {
+                int word = bitmaps.get(doc, i + 1);
+                int pantryWord = have[bitmaps.get(doc, i)];
+                covered += Integer.bitCount(word & pantryWord);
+                missing += Integer.bitCount(word & ~pantryWord);
+            }
+            if (covered == 0 || missing > maxMissing) {
+                continue;
+            }
+            if (counts[missing] == buckets[missing].length) {
+                buckets[missing] = Arrays.copyOf(buckets[missing], counts[missing] * 2);
+            }
+            buckets[missing][counts[missing]++] = doc;
+        }
+        for (int i = 0; i <= maxMissing; i++) {
+            buckets[i] = Arrays.copyOf(buckets[i], counts[i]);
+        }
+        return buckets;
+    }
+}
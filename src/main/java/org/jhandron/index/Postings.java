@@ -0,0 +1,67 @@
+package org.jhandron.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+final class Postings {
+    static final int[] EMPTY = new int[0];
+
+    private Postings() {
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    static int[] intersect(int[] a, PostingsList b) {
+        int[] out = new int[Math.min(a.length, b.size())];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.size()) {
+            int right = b.get(j);
+            if (a[i] < right) {
+                i++;
+            } else if (a[i] > right) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    static int[] union(Collection<PostingsList> lists) {
+        if (lists.isEmpty()) {
+            return EMPTY;
+        }
+        if (lists.size() == 1) {
+            return lists.iterator().next().toArray();
+        }
+        BitSet bits = new BitSet();
+        for (PostingsList list : lists) {
+            for (int i = 0; i < list.size(); i++) {
+                bits.set(list.get(i));
+            }
+        }
+        return bits.stream().toArray();
+    }
+}
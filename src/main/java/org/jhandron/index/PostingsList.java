@@ -0,0 +1,57 @@
+package org.jhandron.index;
+
+import java.util.Arrays;
+
+final class PostingsList {
+    private int[] docs = new int[4];
+    private int size;
+
+    boolean add(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+        }
+        System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+        docs[pos] = doc;
+        size++;
+        return true;
+    }
+
+    boolean remove(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean contains(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int index) {
+        return docs[index];
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(docs, size);
+    }
+}
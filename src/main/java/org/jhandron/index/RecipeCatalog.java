@@ -0,0 +1,506 @@
+package org.jhandron.index;
+
+import org.bson.types.ObjectId;
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
+import org.jhandron.model.SimilarRecipe;
+import org.jhandron.model.TermDictionary;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+// recipes() follows later changes; search results keep the docs they matched.
+public class RecipeCatalog {
+    public static final Comparator<RecipeSummary> NAME_ORDER = Comparator
+            .comparing(RecipeSummary::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(RecipeSummary::getId, Comparator.nullsFirst(Comparator.<ObjectId>naturalOrder()));
+    // Results holding more than one doc in this many are put in name order by walking the catalog instead.
+    private static final int SCAN_RATIO = 16;
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
+    private final CatalogColumns columns = new CatalogColumns();
+    private int[] ordered = new int[16];
+    private int orderedSize;
+    private final TokenIndex ingredientIndex = new TokenIndex();
+    private final TokenIndex tagIndex = new TokenIndex();
+    private final NameTrigramIndex nameIndex = new NameTrigramIndex();
+    private final FuzzyTermIndex fuzzyIndex = new FuzzyTermIndex();
+    private final PantryIndex pantryIndex = new PantryIndex();
+    private final RecipeGraph graph = new RecipeGraph(columns);
+    private final SimilarityIndex similarity = new SimilarityIndex(columns);
+    private final FacetIndex tagFacets = new FacetIndex();
+    private final FacetIndex ingredientFacets = new FacetIndex();
+
+    public void rebuild(Collection<RecipeSummary> recipes) {
+        columns.clear();
+        orderedSize = 0;
+        ingredientIndex.clear();
+        tagIndex.clear();
+        nameIndex.clear();
+        fuzzyIndex.clear();
+        pantryIndex.clear();
+        graph.clear();
+        similarity.clear();
+        tagFacets.clear();
+        ingredientFacets.clear();
+        addAll(recipes);
+    }
+
+    public void addAll(Collection<RecipeSummary> recipes) {
+        int[] added = new int[recipes.size()];
+        int count = 0;
+        int firstAdded = columns.size();
+        for (RecipeSummary recipe : recipes) {
+            if (recipe == null || recipe.getId() == null) {
+                continue;
+            }
+            int doc = columns.find(recipe.getId());
+            if (doc >= firstAdded) {
+                // Added earlier in this batch and not in the name order yet.
+                if (!isStale(doc, recipe)) {
+                    replace(doc, recipe);
+                }
+                continue;
+            }
+            if (doc >= 0) {
+                put(recipe);
+                continue;
+            }
+            doc = columns.add(recipe);
+            indexDocument(doc, recipe);
+            added[count++] = doc;
+        }
+        mergeOrdered(sortByName(Arrays.copyOf(added, count)));
+    }
+
+    public void put(RecipeSummary recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        int doc = columns.find(recipe.getId());
+        if (doc < 0) {
+            doc = columns.add(recipe);
+            indexDocument(doc, recipe);
+        } else if (isStale(doc, recipe)) {
+            return;
+        } else {
+            removeOrdered(doc);
+            replace(doc, recipe);
+        }
+        insertOrdered(doc);
+    }
+
+    public void remove(ObjectId id) {
+        int doc = columns.find(id);
+        if (doc < 0) {
+            return;
+        }
+        unindexDocument(doc);
+        removeOrdered(doc);
+        columns.remove(doc);
+        graph.clear();
+        similarity.changed(doc);
+    }
+
+    public RecipeSummary get(ObjectId id) {
+        int doc = columns.find(id);
+        return doc < 0 ? null : columns.summary(doc);
+    }
+
+    public boolean contains(ObjectId id) {
+        return columns.find(id) >= 0;
+    }
+
+    public String getName(ObjectId id) {
+        int doc = columns.find(id);
+        return doc < 0 ? null : columns.name(doc);
+    }
+
+    public List<RecipeSummary> recipes() {
+        return new OrderedView();
+    }
+
+    // Copied so it can be read on another thread.
+    public List<RecipeSummary> snapshot() {
+        return new DocList(columns.copy(), Arrays.copyOf(ordered, orderedSize));
+    }
+
+    public int size() {
+        return orderedSize;
+    }
+
+    // Ids of recipes no newer than revision; recipes stored without one count as older than any.
+    public List<ObjectId> findIdsUpToRevision(long revision) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < orderedSize; i++) {
+            if (columns.revision(ordered[i]) <= revision) {
+                ids.add(columns.id(ordered[i]));
+            }
+        }
+        return ids;
+    }
+
+    public List<RecipeSummary> findByName(String query) {
+        return resolve(nameIndex.match(query));
+    }
+
+    public List<RecipeSummary> findByAnyIngredient(List<String> tokens) {
+        return resolve(ingredientIndex.matchAny(tokens));
+    }
+
+    public List<RecipeSummary> findByAllTags(List<String> tokens) {
+        return resolve(tagIndex.matchAll(tokens));
+    }
+
+    // Fewest edits first, then by name.
+    public List<RecipeSummary> findFuzzy(String query) {
+        FuzzyTermIndex.Ranked ranked = fuzzyIndex.match(query);
+        int maxDistance = 0;
+        for (int distance : ranked.distances()) {
+            maxDistance = Math.max(maxDistance, distance);
+        }
+        int[] counts = new int[maxDistance + 1];
+        for (int distance : ranked.distances()) {
+            counts[distance]++;
+        }
+        int[][] buckets = new int[maxDistance + 1][];
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            buckets[distance] = new int[counts[distance]];
+            counts[distance] = 0;
+        }
+        for (int i = 0; i < ranked.docs().length; i++) {
+            int distance = ranked.distances()[i];
+            buckets[distance][counts[distance]++] = ranked.docs()[i];
+        }
+        int[] results = new int[ranked.docs().length];
+        int n = 0;
+        for (int[] bucket : buckets) {
+            int[] sorted = orderByName(bucket);
+            System.arraycopy(sorted, 0, results, n, sorted.length);
+            n += sorted.length;
+        }
+        return new DocList(columns, Arrays.copyOf(results, n));
+    }
+
+    // Fewest missing first, then by name.
+    public List<PantryMatch> findByPantry(Collection<String> pantry, int maxMissing, int limit) {
+        if (pantry.isEmpty() || maxMissing < 0 || limit <= 0) {
+            return List.of();
+        }
+        Set<String> have = new HashSet<>();
+        for (String ingredient : pantry) {
+            have.add(TermDictionary.normalize(ingredient));
+        }
+        List<PantryMatch> matches = new ArrayList<>();
+        for (int[] bucket : pantryIndex.match(have, maxMissing)) {
+            for (int doc : firstByName(bucket, limit - matches.size())) {
+                List<String> missing = new ArrayList<>();
+                Set<String> listed = new HashSet<>(have);
+                for (int ingredientId : columns.ingredientIds(doc)) {
+                    String ingredient = TERMS.normalized(ingredientId);
+                    if (!ingredient.isEmpty() && listed.add(ingredient)) {
+                        missing.add(TERMS.term(ingredientId).trim());
+                    }
+                }
+                matches.add(new PantryMatch(columns.summary(doc), missing));
+            }
+        }
+        return matches;
+    }
+
+    // MinHash candidates can miss a recipe sharing only an ingredient or two; the scores are exact.
+    public List<SimilarRecipe> findSimilar(ObjectId id, int limit) {
+        int doc = columns.find(id);
+        if (doc < 0) {
+            return List.of();
+        }
+        SimilarityIndex.Ranked ranked = similarity.similar(doc, limit);
+        List<SimilarRecipe> results = new ArrayList<>(ranked.docs().length);
+        for (int i = 0; i < ranked.docs().length; i++) {
+            results.add(new SimilarRecipe(columns.summary(ranked.docs()[i]), ranked.scores()[i]));
+        }
+        return results;
+    }
+
+    // A list holding most of the catalog is counted by taking away what it leaves out.
+    public RecipeFacets facets(List<RecipeSummary> recipes, int limit) {
+        if (limit <= 0) {
+            return RecipeFacets.EMPTY;
+        }
+        int[] tagCounts;
+        int[] ingredientCounts;
+        if (recipes instanceof OrderedView) {
+            tagCounts = tagFacets.counts();
+            ingredientCounts = ingredientFacets.counts();
+        } else {
+            BitSet included = docsOf(recipes);
+            int count = included.cardinality();
+            if ((long) count * 2 <= orderedSize) {
+                tagCounts = new int[tagFacets.slotCount()];
+                ingredientCounts = new int[ingredientFacets.slotCount()];
+                for (int doc = included.nextSetBit(0); doc >= 0; doc = included.nextSetBit(doc + 1)) {
+                    tagFacets.count(columns.tagIds(doc), tagCounts, 1);
+                    ingredientFacets.count(columns.ingredientIds(doc), ingredientCounts, 1);
+                }
+            } else {
+                tagCounts = tagFacets.counts();
+                ingredientCounts = ingredientFacets.counts();
+                for (int i = 0; i < orderedSize; i++) {
+                    int doc = ordered[i];
+                    if (!included.get(doc)) {
+                        tagFacets.count(columns.tagIds(doc), tagCounts, -1);
+                        ingredientFacets.count(columns.ingredientIds(doc), ingredientCounts, -1);
+                    }
+                }
+            }
+        }
+        return new RecipeFacets(tagFacets.top(tagCounts, limit), ingredientFacets.top(ingredientCounts, limit));
+    }
+
+    public List<RecipeSummary> findLinksFrom(ObjectId id) {
+        int doc = columns.find(id);
+        return doc < 0 ? List.of() : new DocList(columns, graph.outgoing(doc));
+    }
+
+    public List<RecipeSummary> findLinksTo(ObjectId id) {
+        int doc = columns.find(id);
+        return doc < 0 ? List.of() : resolve(graph.incoming(doc));
+    }
+
+    public List<RecipeHop> findWithinHops(ObjectId id, int maxHops, LinkDirection direction) {
+        int doc = columns.find(id);
+        if (doc < 0 || maxHops <= 0) {
+            return List.of();
+        }
+        RecipeGraph.Reach reach = graph.traverse(doc, maxHops, direction);
+        List<RecipeHop> results = new ArrayList<>(reach.docs().length);
+        for (int i = 0; i < reach.docs().length; i++) {
+            results.add(new RecipeHop(columns.summary(reach.docs()[i]), reach.hops()[i]));
+        }
+        results.sort(Comparator.comparingInt(RecipeHop::hops).thenComparing(RecipeHop::recipe, NAME_ORDER));
+        return results;
+    }
+
+    // Live docs of a list; search results carry theirs, anything else is looked up by id.
+    private BitSet docsOf(List<RecipeSummary> recipes) {
+        BitSet docs = new BitSet(columns.size());
+        if (recipes instanceof DocList list && list.columns == columns) {
+            for (int doc : list.docs) {
+                if (columns.isLive(doc)) {
+                    docs.set(doc);
+                }
+            }
+            return docs;
+        }
+        for (RecipeSummary recipe : recipes) {
+            int doc = recipe == null ? -1 : columns.find(recipe.getId());
+            if (doc >= 0) {
+                docs.set(doc);
+            }
+        }
+        return docs;
+    }
+
+    private List<RecipeSummary> resolve(int[] matches) {
+        return new DocList(columns, orderByName(matches));
+    }
+
+    // Drops docs that are gone and sorts the rest in place by name, or by walking the catalog when there are many.
+    private int[] orderByName(int[] matches) {
+        int count = 0;
+        for (int doc : matches) {
+            if (columns.isLive(doc)) {
+                matches[count++] = doc;
+            }
+        }
+        if ((long) count * SCAN_RATIO < orderedSize) {
+            return sortByName(Arrays.copyOf(matches, count));
+        }
+        BitSet hits = new BitSet(columns.size());
+        for (int i = 0; i < count; i++) {
+            hits.set(matches[i]);
+        }
+        int[] sorted = new int[count];
+        int n = 0;
+        for (int i = 0; i < orderedSize && n < count; i++) {
+            if (hits.get(ordered[i])) {
+                sorted[n++] = ordered[i];
+            }
+        }
+        return sorted;
+    }
+
+    // Like orderByName, but a walk of the catalog can stop as soon as it has found `count` of the docs.
+    private int[] firstByName(int[] docs, int count) {
+        if (count <= 0 || docs.length == 0) {
+            return Postings.EMPTY;
+        }
+        if ((long) docs.length * SCAN_RATIO < orderedSize) {
+            int[] sorted = orderByName(docs);
+            return sorted.length <= count ? sorted : Arrays.copyOf(sorted, count);
+        }
+        BitSet hits = new BitSet(columns.size());
+        for (int doc : docs) {
+            hits.set(doc);
+        }
+        int[] first = new int[Math.min(count, docs.length)];
+        int n = 0;
+        for (int i = 0; i < orderedSize && n < first.length; i++) {
+            if (hits.get(ordered[i])) {
+                first[n++] = ordered[i];
+            }
+        }
+        return n == first.length ? first : Arrays.copyOf(first, n);
+    }
+
+    private int[] sortByName(int[] docs) {
+        Integer[] boxed = new Integer[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            boxed[i] = docs[i];
+        }
+        Arrays.sort(boxed, columns::compareByName);
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = boxed[i];
+        }
+        return docs;
+    }
+
+    // A page fetched before a delta must not roll the catalog back; unflushed local saves always win.
+    private boolean isStale(int doc, RecipeSummary recipe) {
+        return recipe.getRevision() != 0 && columns.revision(doc) > recipe.getRevision();
+    }
+
+    private void replace(int doc, RecipeSummary recipe) {
+        unindexDocument(doc);
+        columns.set(doc, recipe);
+        indexDocument(doc, recipe);
+    }
+
+    private void indexDocument(int doc, RecipeSummary recipe) {
+        ingredientIndex.add(doc, recipe.getIngredientIds());
+        tagIndex.add(doc, recipe.getTagIds());
+        nameIndex.add(doc, recipe.getName());
+        fuzzyIndex.add(doc, recipe.getName(), recipe.getIngredientIds());
+        pantryIndex.add(doc, recipe.getIngredientIds());
+        tagFacets.add(recipe.getTagIds());
+        ingredientFacets.add(recipe.getIngredientIds());
+        graph.changed(doc);
+        similarity.changed(doc);
+    }
+
+    private void unindexDocument(int doc) {
+        ingredientIndex.remove(doc, columns.ingredientIds(doc));
+        tagIndex.remove(doc, columns.tagIds(doc));
+        nameIndex.remove(doc);
+        fuzzyIndex.remove(doc, columns.name(doc), columns.ingredientIds(doc));
+        pantryIndex.remove(doc);
+        tagFacets.remove(columns.tagIds(doc));
+        ingredientFacets.remove(columns.ingredientIds(doc));
+    }
+
+    // Merges from the back, binary searching where each added doc goes and moving the docs after it as a block,
+    // so a page costs a few comparisons per recipe in it rather than one per recipe in the catalog.
+    private void mergeOrdered(int[] added) {
+        ensureOrderedCapacity(orderedSize + added.length);
+        int end = orderedSize;
+        for (int j = added.length - 1; j >= 0; j--) {
+            int pos = -orderedPosition(added[j], end) - 1;
+            System.arraycopy(ordered, pos, ordered, pos + j + 1, end - pos);
+            ordered[pos + j] = added[j];
+            end = pos;
+        }
+        orderedSize += added.length;
+    }
+
+    private void insertOrdered(int doc) {
+        int pos = orderedPosition(doc);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -pos - 1;
+        ensureOrderedCapacity(orderedSize + 1);
+        System.arraycopy(ordered, pos, ordered, pos + 1, orderedSize - pos);
+        ordered[pos] = doc;
+        orderedSize++;
+    }
+
+    private void removeOrdered(int doc) {
+        int pos = orderedPosition(doc);
+        if (pos >= 0) {
+            System.arraycopy(ordered, pos + 1, ordered, pos, orderedSize - pos - 1);
+            orderedSize--;
+        }
+    }
+
+    private int orderedPosition(int doc) {
+        return orderedPosition(doc, orderedSize);
+    }
+
+    private int orderedPosition(int doc, int end) {
+        int low = 0;
+        int high = end - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = columns.compareByName(ordered[mid], doc);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void ensureOrderedCapacity(int capacity) {
+        if (capacity > ordered.length) {
+            ordered = Arrays.copyOf(ordered, Math.max(capacity, ordered.length * 2));
+        }
+    }
+
+    private final class OrderedView extends AbstractList<RecipeSummary> implements RandomAccess {
+        @Override
+        public RecipeSummary get(int index) {
+            Objects.checkIndex(index, orderedSize);
+            return columns.summary(ordered[index]);
+        }
+
+        @Override
+        public int size() {
+            return orderedSize;
+        }
+    }
+
+    private static final class DocList extends AbstractList<RecipeSummary> implements RandomAccess {
+        private final CatalogColumns columns;
+        private final int[] docs;
+
+        private DocList(CatalogColumns columns, int[] docs) {
+            this.columns = columns;
+            this.docs = docs;
+        }
+
+        @Override
+        public RecipeSummary get(int index) {
+            return columns.summary(docs[index]);
+        }
+
+        @Override
+        public int size() {
+            return docs.length;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.jhandron.index;
+
+import org.bson.types.ObjectId;
+import org.jhandron.model.LinkDirection;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Edited links are overlaid on the compressed rows until rebuilding is cheaper.
+final class RecipeGraph {
+    private static final int[] NONE = new int[0];
+    private static final int MAX_PENDING_CHANGES = 1024;
+
+    private final CatalogColumns columns;
+    private final BitSet changed = new BitSet();
+    private final BitSet unresolved = new BitSet();
+    private boolean stale = true;
+    private int changedCount;
+    private int baseSize;
+    private int[] forwardOffsets = {0};
+    private int[] forwardTargets = NONE;
+    private int[] reverseOffsets = {0};
+    private int[] reverseSources = NONE;
+    private Map<ObjectId, int[]> danglingSources = Map.of();
+    private Map<Integer, IntBuffer> changedIncoming;
+
+    RecipeGraph(CatalogColumns columns) {
+        this.columns = columns;
+    }
+
+    void clear() {
+        stale = true;
+    }
+
+    void changed(int doc) {
+        if (stale || changed.get(doc)) {
+            return;
+        }
+        changed.set(doc);
+        changedIncoming = null;
+        if (++changedCount > MAX_PENDING_CHANGES) {
+            stale = true;
+        }
+    }
+
+    int[] outgoing(int doc) {
+        ensureBuilt();
+        if (doc >= baseSize || changed.get(doc) || unresolved.get(doc)) {
+            return resolve(doc);
+        }
+        return Arrays.copyOfRange(forwardTargets, forwardOffsets[doc], forwardOffsets[doc + 1]);
+    }
+
+    int[] incoming(int doc) {
+        ensureBuilt();
+        IntBuffer sources = new IntBuffer();
+        if (doc < baseSize) {
+            for (int i = reverseOffsets[doc]; i < reverseOffsets[doc + 1]; i++) {
+                if (!changed.get(reverseSources[i])) {
+                    sources.add(reverseSources[i]);
+                }
+            }
+        } else if (columns.isLive(doc)) {
+            // Recipes added since the build may be the target of links that could not be resolved back then.
+            for (int source : danglingSources.getOrDefault(columns.id(doc), NONE)) {
+                if (!changed.get(source)) {
+                    sources.add(source);
+                }
+            }
+        }
+        IntBuffer overlay = changedIncoming().get(doc);
+        if (overlay != null) {
+            sources.addAll(overlay);
+        }
+        return sources.toArray();
+    }
+
+    Reach traverse(int start, int maxHops, LinkDirection direction) {
+        BitSet seen = new BitSet(columns.size());
+        seen.set(start);
+        IntBuffer reached = new IntBuffer();
+        IntBuffer hops = new IntBuffer();
+        IntBuffer frontier = new IntBuffer();
+        frontier.add(start);
+        for (int hop = 1; hop <= maxHops && frontier.size > 0; hop++) {
+            IntBuffer next = new IntBuffer();
+            for (int i = 0; i < frontier.size; i++) {
+                int doc = frontier.values[i];
+                if (direction != LinkDirection.INCOMING) {
+                    visit(outgoing(doc), hop, seen, next, reached, hops);
+                }
+                if (direction != LinkDirection.OUTGOING) {
+                    visit(incoming(doc), hop, seen, next, reached, hops);
+                }
+            }
+            frontier = next;
+        }
+        return new Reach(reached.toArray(), hops.toArray());
+    }
+
+    private static void visit(int[] neighbours, int hop, BitSet seen, IntBuffer next, IntBuffer reached,
+                              IntBuffer hops) {
+        for (int neighbour : neighbours) {
+            if (!seen.get(neighbour)) {
+                seen.set(neighbour);
+                next.add(neighbour);
+                reached.add(neighbour);
+                hops.add(hop);
+            }
+        }
+    }
+
+    private int[] resolve(int doc) {
+        int count = columns.isLive(doc) ? columns.relatedCount(doc) : 0;
+        if (count == 0) {
+            return NONE;
+        }
+        IntBuffer targets = new IntBuffer();
+        for (int i = 0; i < count; i++) {
+            int target = columns.relatedDoc(doc, i);
+            if (target >= 0 && target != doc && !targets.contains(target)) {
+                targets.add(target);
+            }
+        }
+        return targets.toArray();
+    }
+
+    private Map<Integer, IntBuffer> changedIncoming() {
+        if (changedIncoming == null) {
+            changedIncoming = new HashMap<>();
+            for (int doc = changed.nextSetBit(0); doc >= 0; doc = changed.nextSetBit(doc + 1)) {
+                for (int target : resolve(doc)) {
+                    changedIncoming.computeIfAbsent(target, ignored -> new IntBuffer()).add(doc);
+                }
+            }
+        }
+        return changedIncoming;
+    }
+
+    private void ensureBuilt() {
+        if (!stale) {
+            return;
+        }
+        int size = columns.size();
+        int[] offsets = new int[size + 1];
+        IntBuffer targets = new IntBuffer();
+        Map<ObjectId, IntBuffer> dangling = new HashMap<>();
+        unresolved.clear();
+        for (int doc = 0; doc < size; doc++) {
+            if (columns.isLive(doc)) {
+                int rowStart = targets.size;
+                for (int i = 0; i < columns.relatedCount(doc); i++) {
+                    int target = columns.relatedDoc(doc, i);
+                    if (target < 0) {
+                        unresolved.set(doc);
+                        dangling.computeIfAbsent(columns.relatedId(doc, i), ignored -> new IntBuffer()).add(doc);
+                    } else if (target != doc && !targets.containsFrom(rowStart, target)) {
+                        targets.add(target);
+                    }
+                }
+            }
+            offsets[doc + 1] = targets.size;
+        }
+        int[] inDegree = new int[size + 1];
+        for (int i = 0; i < targets.size; i++) {
+            inDegree[targets.values[i] + 1]++;
+        }
+        for (int doc = 0; doc < size; doc++) {
+            inDegree[doc + 1] += inDegree[doc];
+        }
+        int[] sources = new int[targets.size];
+        int[] fill = Arrays.copyOf(inDegree, size);
+        for (int doc = 0; doc < size; doc++) {
+            for (int i = offsets[doc]; i < offsets[doc + 1]; i++) {
+                sources[fill[targets.values[i]]++] = doc;
+            }
+        }
+        forwardOffsets = offsets;
+        forwardTargets = targets.toArray();
+        reverseOffsets = inDegree;
+        reverseSources = sources;
+        Map<ObjectId, int[]> danglingArrays = new HashMap<>(dangling.size() * 2);
+        dangling.forEach((id, docsLinking) -> danglingArrays.put(id, docsLinking.toArray()));
+        danglingSources = danglingArrays;
+        baseSize = size;
+        changed.clear();
+        changedCount = 0;
+        changedIncoming = null;
+        stale = false;
+    }
+
+    record Reach(int[] docs, int[] hops) {
+    }
+
+    private static final class IntBuffer {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntBuffer other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        boolean contains(int value) {
+            return containsFrom(0, value);
+        }
+
+        boolean containsFrom(int from, int value) {
+            for (int i = from; i < size; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int[] toArray() {
+            return size == 0 ? NONE : Arrays.copyOf(values, size);
+        }
+    }
+}
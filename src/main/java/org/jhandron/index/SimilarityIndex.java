@@ -0,0 +1,219 @@
+package org.jhandron.index;
+
+import org.jhandron.model.TermDictionary;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// MinHash bands find candidates, which are scored by exact Jaccard similarity. Changed docs are checked
+// directly until re-sorting the bands is cheaper.
+final class SimilarityIndex {
+    private static final int BANDS = 16;
+    private static final int ROWS = 3;
+    private static final int MAX_PENDING_CHANGES = 1024;
+    private static final long[] SEEDS = new long[BANDS * ROWS];
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
+    static {
+        long seed = 0x5deece66dL;
+        for (int i = 0; i < SEEDS.length; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final CatalogColumns columns;
+    private final BitSet changed = new BitSet();
+    private final long[][] bands = new long[BANDS][];
+    private boolean stale = true;
+    private int changedCount;
+
+    SimilarityIndex(CatalogColumns columns) {
+        this.columns = columns;
+    }
+
+    void clear() {
+        stale = true;
+    }
+
+    void changed(int doc) {
+        if (stale || changed.get(doc)) {
+            return;
+        }
+        changed.set(doc);
+        if (++changedCount > MAX_PENDING_CHANGES) {
+            stale = true;
+        }
+    }
+
+    Ranked similar(int doc, int limit) {
+        ensureBuilt();
+        long[] features = features(doc);
+        if (features.length == 0 || limit <= 0) {
+            return new Ranked(Postings.EMPTY, new float[0]);
+        }
+        int[] keys = bandKeys(features);
+        BitSet candidates = new BitSet();
+        for (int band = 0; band < BANDS; band++) {
+            long[] entries = bands[band];
+            long key = (long) keys[band] << 32;
+            int i = Arrays.binarySearch(entries, key);
+            for (i = i < 0 ? -i - 1 : i; i < entries.length && (int) (entries[i] >>> 32) == keys[band]; i++) {
+                int candidate = (int) entries[i];
+                if (!changed.get(candidate)) {
+                    candidates.set(candidate);
+                }
+            }
+        }
+        for (int other = changed.nextSetBit(0); other >= 0; other = changed.nextSetBit(other + 1)) {
+            long[] otherFeatures = columns.isLive(other) ? features(other) : null;
+            if (otherFeatures != null && otherFeatures.length > 0 && sharesBand(keys, bandKeys(otherFeatures))) {
+                candidates.set(other);
+            }
+        }
+        candidates.clear(doc);
+        int[] docs = new int[candidates.cardinality()];
+        float[] scores = new float[docs.length];
+        int n = 0;
+        for (int other = candidates.nextSetBit(0); other >= 0; other = candidates.nextSetBit(other + 1)) {
+            if (columns.isLive(other)) {
+                docs[n] = other;
+                scores[n++] = jaccard(features, features(other));
+            }
+        }
+        return top(docs, scores, n, limit);
+    }
+
+    private Ranked top(int[] docs, float[] scores, int count, int limit) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                ? Float.compare(scores[b], scores[a])
+                : columns.compareByName(docs[a], docs[b]));
+        int size = Math.min(limit, count);
+        int[] topDocs = new int[size];
+        float[] topScores = new float[size];
+        for (int i = 0; i < size; i++) {
+            topDocs[i] = docs[order[i]];
+            topScores[i] = scores[order[i]];
+        }
+        return new Ranked(topDocs, topScores);
+    }
+
+    private static boolean sharesBand(int[] keys, int[] otherKeys) {
+        for (int band = 0; band < BANDS; band++) {
+            if (keys[band] == otherKeys[band]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureBuilt() {
+        if (!stale) {
+            return;
+        }
+        int size = columns.size();
+        long[][] built = new long[BANDS][size];
+        int count = 0;
+        for (int doc = 0; doc < size; doc++) {
+            long[] features = columns.isLive(doc) ? features(doc) : null;
+            if (features == null || features.length == 0) {
+                continue;
+            }
+            int[] keys = bandKeys(features);
+            for (int band = 0; band < BANDS; band++) {
+                built[band][count] = (long) keys[band] << 32 | doc;
+            }
+            count++;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            // Band hash in the high half, doc in the low half, so equal hashes sort next to each other.
+            bands[band] = Arrays.copyOf(built[band], count);
+            Arrays.sort(bands[band]);
+        }
+        changed.clear();
+        changedCount = 0;
+        stale = false;
+    }
+
+    // Distinct hashes of a doc's normalized ingredients and tags, sorted; the two kinds never collide on purpose.
+    private long[] features(int doc) {
+        int[] ingredients = columns.ingredientIds(doc);
+        int[] tags = columns.tagIds(doc);
+        long[] features = new long[ingredients.length + tags.length];
+        int n = 0;
+        for (int id : ingredients) {
+            String term = TERMS.normalized(id);
+            if (!term.isEmpty()) {
+                features[n++] = mix(term.hashCode());
+            }
+        }
+        for (int id : tags) {
+            String term = TERMS.normalized(id);
+            if (!term.isEmpty()) {
+                features[n++] = mix(~(long) term.hashCode());
+            }
+        }
+        Arrays.sort(features, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || features[distinct - 1] != features[i]) {
+                features[distinct++] = features[i];
+            }
+        }
+        return Arrays.copyOf(features, distinct);
+    }
+
+    private static int[] bandKeys(long[] features) {
+        int[] keys = new int[BANDS];
+        if (features.length == 0) {
+            return keys;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS; row++) {
+                long seed = SEEDS[band * ROWS + row];
+                long min = Long.MAX_VALUE;
+                for (long feature : features) {
+                    min = Math.min(min, mix(feature ^ seed));
+                }
+                key = mix(key * 31 + min);
+            }
+            keys[band] = (int) key;
+        }
+        return keys;
+    }
+
+    private static float jaccard(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - shared;
+        return union == 0 ? 0 : (float) shared / union;
+    }
+
+    // The splitmix64 finalizer.
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    record Ranked(int[] docs, float[] scores) {
+    }
+}
@@ -0,0 +1,43 @@
+package org.jhandron.index;
+
+import org.jhandron.model.TermDictionary;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+final class TextTokens {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextTokens() {
+    }
+
+    static String fold(String value) {
+        String normalized = TermDictionary.normalize(value);
+        if (isAscii(normalized)) {
+            return normalized;
+        }
+        return COMBINING_MARKS.matcher(Normalizer.normalize(normalized, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    static List<String> split(String value) {
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(fold(value))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
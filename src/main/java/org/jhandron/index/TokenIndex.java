@@ -0,0 +1,111 @@
+package org.jhandron.index;
+
+import org.jhandron.model.TermDictionary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class TokenIndex {
+    private final Map<String, PostingsList> postings = new HashMap<>();
+    private String lastQuery;
+    private List<String> lastMatches;
+
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
+    static String normalize(String value) {
+        return TermDictionary.normalize(value);
+    }
+
+    void add(int doc, int[] termIds) {
+        for (int termId : termIds) {
+            String term = TERMS.normalized(termId);
+            if (term.isEmpty()) {
+                continue;
+            }
+            PostingsList list = postings.get(term);
+            if (list == null) {
+                list = new PostingsList();
+                postings.put(term, list);
+                invalidateCache();
+            }
+            list.add(doc);
+        }
+    }
+
+    void remove(int doc, int[] termIds) {
+        for (int termId : termIds) {
+            String term = TERMS.normalized(termId);
+            PostingsList list = postings.get(term);
+            if (list != null && list.remove(doc) && list.isEmpty()) {
+                postings.remove(term);
+                invalidateCache();
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        invalidateCache();
+    }
+
+    int termCount() {
+        return postings.size();
+    }
+
+    int[] matchAny(List<String> tokens) {
+        List<PostingsList> lists = new ArrayList<>();
+        for (String token : tokens) {
+            for (String term : termsContaining(token)) {
+                lists.add(postings.get(term));
+            }
+        }
+        return Postings.union(lists);
+    }
+
+    int[] matchAll(List<String> tokens) {
+        int[] result = null;
+        for (String token : tokens) {
+            List<PostingsList> lists = new ArrayList<>();
+            for (String term : termsContaining(token)) {
+                lists.add(postings.get(term));
+            }
+            int[] docs = Postings.union(lists);
+            result = result == null ? docs : Postings.intersect(result, docs);
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        return result == null ? Postings.EMPTY : result;
+    }
+
+    private List<String> termsContaining(String token) {
+        String needle = normalize(token);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+        if (needle.equals(lastQuery)) {
+            return lastMatches;
+        }
+        // Typing usually extends the previous token, so only its matches can still match.
+        Collection<String> candidates = lastQuery != null && needle.contains(lastQuery)
+                ? lastMatches
+                : postings.keySet();
+        List<String> matches = new ArrayList<>();
+        for (String term : candidates) {
+            if (term.contains(needle)) {
+                matches.add(term);
+            }
+        }
+        lastQuery = needle;
+        lastMatches = matches;
+        return matches;
+    }
+
+    private void invalidateCache() {
+        lastQuery = null;
+        lastMatches = null;
+    }
+}
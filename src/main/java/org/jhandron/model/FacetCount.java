@@ -0,0 +1,4 @@
+package org.jhandron.model;
+
+public record FacetCount(String value, int count) {
+}
@@ -0,0 +1,7 @@
+package org.jhandron.model;
+
+public enum LinkDirection {
+    OUTGOING,
+    INCOMING,
+    BOTH
+}
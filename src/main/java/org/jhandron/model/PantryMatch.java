@@ -0,0 +1,6 @@
+package org.jhandron.model;
+
+import java.util.List;
+
+public record PantryMatch(RecipeSummary recipe, List<String> missing) {
+}
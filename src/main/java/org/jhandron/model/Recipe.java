@@ -5,21 +5,27 @@ import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class Recipe {
+    private static final TermDictionary TERMS = TermDictionary.shared();
+
     private ObjectId id;
     private String name;
-    private List<String> ingredients;
-    private List<String> tags;
+    // Ids in TermDictionary; the arrays are replaced, never modified, so copies can share them.
+    private int[] ingredients;
+    private int[] tags;
     private String instructions;
     private List<ObjectId> relatedRecipeIds;
+    private long revision;
+    private Date updatedAt;
 
     public Recipe() {
-        this.ingredients = new ArrayList<>();
-        this.tags = new ArrayList<>();
+        this.ingredients = new int[0];
+        this.tags = new int[0];
         this.relatedRecipeIds = new ArrayList<>();
     }
 
@@ -27,8 +33,8 @@ public class Recipe {
                   List<ObjectId> relatedRecipeIds) {
         this.id = id;
         this.name = name;
-        this.ingredients = new ArrayList<>(ingredients);
-        this.tags = new ArrayList<>(tags);
+        this.ingredients = TERMS.internAll(ingredients);
+        this.tags = TERMS.internAll(tags);
         this.instructions = instructions;
         this.relatedRecipeIds = new ArrayList<>(relatedRecipeIds);
     }
@@ -37,10 +43,12 @@ public class Recipe {
         Recipe recipe = new Recipe();
         recipe.setId(doc.getObjectId("_id"));
         recipe.setName(doc.getString("name"));
-        recipe.setIngredients(toStringList(doc.getList("ingredients", Object.class)));
-        recipe.setTags(toStringList(doc.getList("tags", Object.class)));
+        recipe.ingredients = toTermIds(doc.getList("ingredients", Object.class));
+        recipe.tags = toTermIds(doc.getList("tags", Object.class));
         recipe.setInstructions(doc.getString("instructions"));
         recipe.setRelatedRecipeIds(toObjectIdList(doc.getList("relatedRecipes", Object.class)));
+        recipe.setRevision(toRevision(doc.get("revision")));
+        recipe.setUpdatedAt(doc.getDate("updatedAt"));
         return recipe;
     }
 
@@ -50,21 +58,29 @@ public class Recipe {
             doc.put("_id", id);
         }
         doc.put("name", name);
-        doc.put("ingredients", new ArrayList<>(ingredients));
-        doc.put("tags", new ArrayList<>(tags));
+        doc.put("ingredients", new ArrayList<>(getIngredients()));
+        doc.put("tags", new ArrayList<>(getTags()));
         doc.put("instructions", instructions);
         doc.put("relatedRecipes", new ArrayList<>(relatedRecipeIds));
         return doc;
     }
 
-    private static List<String> toStringList(List<Object> raw) {
+    static int[] toTermIds(List<Object> raw) {
         if (raw == null) {
-            return new ArrayList<>();
+            return new int[0];
+        }
+        int[] ids = new int[raw.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = TERMS.intern(raw.get(i).toString());
         }
-        return raw.stream().map(Object::toString).collect(Collectors.toCollection(ArrayList::new));
+        return ids;
     }
 
-    private static List<ObjectId> toObjectIdList(List<Object> raw) {
+    static long toRevision(Object raw) {
+        return raw instanceof Number number ? number.longValue() : 0L;
+    }
+
+    static List<ObjectId> toObjectIdList(List<Object> raw) {
         if (raw == null) {
             return new ArrayList<>();
         }
@@ -73,6 +89,13 @@ public class Recipe {
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
+    // Takes ownership of what the codec has just built, so decoding does not copy it a second time.
+    void adoptTerms(int[] ingredients, int[] tags, List<ObjectId> relatedRecipeIds) {
+        this.ingredients = ingredients;
+        this.tags = tags;
+        this.relatedRecipeIds = relatedRecipeIds;
+    }
+
     public ObjectId getId() {
         return id;
     }
@@ -90,19 +113,19 @@ public class Recipe {
     }
 
     public List<String> getIngredients() {
-        return Collections.unmodifiableList(ingredients);
+        return TERMS.view(ingredients);
     }
 
     public void setIngredients(List<String> ingredients) {
-        this.ingredients = new ArrayList<>(ingredients);
+        this.ingredients = TERMS.internAll(ingredients);
     }
 
     public List<String> getTags() {
-        return Collections.unmodifiableList(tags);
+        return TERMS.view(tags);
     }
 
     public void setTags(List<String> tags) {
-        this.tags = new ArrayList<>(tags);
+        this.tags = TERMS.internAll(tags);
     }
 
     public String getInstructions() {
@@ -121,6 +144,43 @@ public class Recipe {
         this.relatedRecipeIds = new ArrayList<>(relatedRecipeIds);
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    int[] ingredientIds() {
+        return ingredients;
+    }
+
+    int[] tagIds() {
+        return tags;
+    }
+
+    public Recipe copy() {
+        Recipe copy = new Recipe();
+        copy.id = id;
+        copy.name = name;
+        copy.ingredients = ingredients;
+        copy.tags = tags;
+        copy.instructions = instructions;
+        copy.relatedRecipeIds = new ArrayList<>(relatedRecipeIds);
+        copy.setRevision(revision);
+        copy.setUpdatedAt(updatedAt);
+        return copy;
+    }
+
     @Override
     public String toString() {
         return name != null ? name : "(untitled recipe)";
@@ -0,0 +1,163 @@
+package org.jhandron.model;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Field handling matches Recipe.fromDocument and Recipe.toDocument, plus the revision fields.
+public class RecipeCodec implements Codec<Recipe> {
+    // BSON arrays carry no element count; most recipes fit without the list having to grow.
+    private static final int EXPECTED_LIST_SIZE = 12;
+
+    @Override
+    public Recipe decode(BsonReader reader, DecoderContext decoderContext) {
+        Recipe recipe = new Recipe();
+        int[] ingredients = null;
+        int[] tags = null;
+        List<ObjectId> related = null;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String field = reader.readName();
+            switch (field) {
+                case "_id" -> recipe.setId(reader.getCurrentBsonType() == BsonType.OBJECT_ID
+                        ? reader.readObjectId() : skipAsNull(reader));
+                case "name" -> recipe.setName(readString(reader));
+                case "instructions" -> recipe.setInstructions(readString(reader));
+                case "ingredients" -> ingredients = readTermIds(reader);
+                case "tags" -> tags = readTermIds(reader);
+                case "relatedRecipes" -> related = readObjectIdList(reader);
+                case "revision" -> recipe.setRevision(readLong(reader));
+                case "updatedAt" -> recipe.setUpdatedAt(reader.getCurrentBsonType() == BsonType.DATE_TIME
+                        ? new Date(reader.readDateTime()) : skipAsNull(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        recipe.adoptTerms(ingredients != null ? ingredients : new int[0],
+                tags != null ? tags : new int[0],
+                related != null ? related : new ArrayList<>());
+        return recipe;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Recipe recipe, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (recipe.getId() != null) {
+            writer.writeObjectId("_id", recipe.getId());
+        }
+        writeString(writer, "name", recipe.getName());
+        writeStringList(writer, "ingredients", recipe.getIngredients());
+        writeStringList(writer, "tags", recipe.getTags());
+        writeString(writer, "instructions", recipe.getInstructions());
+        writer.writeStartArray("relatedRecipes");
+        for (ObjectId id : recipe.getRelatedRecipeIds()) {
+            writer.writeObjectId(id);
+        }
+        writer.writeEndArray();
+        if (recipe.getRevision() != 0) {
+            writer.writeInt64("revision", recipe.getRevision());
+        }
+        if (recipe.getUpdatedAt() != null) {
+            writer.writeDateTime("updatedAt", recipe.getUpdatedAt().getTime());
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Recipe> getEncoderClass() {
+        return Recipe.class;
+    }
+
+    static String readString(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case STRING -> reader.readString();
+            case SYMBOL -> reader.readSymbol();
+            default -> skipAsNull(reader);
+        };
+    }
+
+    static List<String> readStringList(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            return skipAsNull(reader);
+        }
+        List<String> values = new ArrayList<>(EXPECTED_LIST_SIZE);
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            // Same leniency as Recipe.toTermIds: scalars are kept as their string form.
+            switch (reader.getCurrentBsonType()) {
+                case STRING -> values.add(reader.readString());
+                case INT32 -> values.add(Integer.toString(reader.readInt32()));
+                case INT64 -> values.add(Long.toString(reader.readInt64()));
+                case DOUBLE -> values.add(Double.toString(reader.readDouble()));
+                case BOOLEAN -> values.add(Boolean.toString(reader.readBoolean()));
+                case OBJECT_ID -> values.add(reader.readObjectId().toString());
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+    static int[] readTermIds(BsonReader reader) {
+        List<String> values = readStringList(reader);
+        return values == null ? null : TermDictionary.shared().internAll(values);
+    }
+
+    static long readLong(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT64 -> reader.readInt64();
+            case INT32 -> reader.readInt32();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> {
+                reader.skipValue();
+                yield 0L;
+            }
+        };
+    }
+
+    static List<ObjectId> readObjectIdList(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            return skipAsNull(reader);
+        }
+        List<ObjectId> ids = new ArrayList<>(EXPECTED_LIST_SIZE);
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.getCurrentBsonType()) {
+                case OBJECT_ID -> ids.add(reader.readObjectId());
+                case STRING -> ids.add(new ObjectId(reader.readString()));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndArray();
+        return ids;
+    }
+
+    private static <T> T skipAsNull(BsonReader reader) {
+        reader.skipValue();
+        return null;
+    }
+
+    static void writeString(BsonWriter writer, String field, String value) {
+        if (value == null) {
+            writer.writeNull(field);
+        } else {
+            writer.writeString(field, value);
+        }
+    }
+
+    static void writeStringList(BsonWriter writer, String field, List<String> values) {
+        writer.writeStartArray(field);
+        for (String value : values) {
+            writer.writeString(value);
+        }
+        writer.writeEndArray();
+    }
+}
@@ -0,0 +1,8 @@
+package org.jhandron.model;
+
+import java.util.List;
+
+// Most common first.
+public record RecipeFacets(List<FacetCount> tags, List<FacetCount> ingredients) {
+    public static final RecipeFacets EMPTY = new RecipeFacets(List.of(), List.of());
+}
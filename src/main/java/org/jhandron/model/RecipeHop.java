@@ -0,0 +1,5 @@
+package org.jhandron.model;
+
+// hops counts the links on the shortest path.
+public record RecipeHop(RecipeSummary recipe, int hops) {
+}
@@ -0,0 +1,87 @@
+package org.jhandron.model;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+public class RecipeSummary {
+    public static final List<String> FIELDS = List.of("name", "ingredients", "tags", "relatedRecipes",
+            "revision");
+
+    private final ObjectId id;
+    private final String name;
+    private final int[] ingredients;
+    private final int[] tags;
+    private final List<ObjectId> relatedRecipeIds;
+    private final long revision;
+
+    public RecipeSummary(ObjectId id, String name, List<String> ingredients, List<String> tags,
+                         List<ObjectId> relatedRecipeIds, long revision) {
+        this(id, name, TermDictionary.shared().internAll(ingredients), TermDictionary.shared().internAll(tags),
+                relatedRecipeIds, revision);
+    }
+
+    // Term ids from TermDictionary, taken as is; the arrays must not be modified afterwards.
+    public RecipeSummary(ObjectId id, String name, int[] ingredients, int[] tags, List<ObjectId> relatedRecipeIds,
+                  long revision) {
+        this.id = id;
+        this.name = name;
+        this.ingredients = ingredients;
+        this.tags = tags;
+        this.relatedRecipeIds = List.copyOf(relatedRecipeIds);
+        this.revision = revision;
+    }
+
+    public static RecipeSummary of(Recipe recipe) {
+        return new RecipeSummary(recipe.getId(), recipe.getName(), recipe.ingredientIds(), recipe.tagIds(),
+                recipe.getRelatedRecipeIds(), recipe.getRevision());
+    }
+
+    public static RecipeSummary fromDocument(Document doc) {
+        return new RecipeSummary(doc.getObjectId("_id"),
+                doc.getString("name"),
+                Recipe.toTermIds(doc.getList("ingredients", Object.class)),
+                Recipe.toTermIds(doc.getList("tags", Object.class)),
+                Recipe.toObjectIdList(doc.getList("relatedRecipes", Object.class)),
+                Recipe.toRevision(doc.get("revision")));
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getIngredients() {
+        return TermDictionary.shared().view(ingredients);
+    }
+
+    public List<String> getTags() {
+        return TermDictionary.shared().view(tags);
+    }
+
+    // TermDictionary ids, shared with the recipe they came from; callers must not modify them.
+    public int[] getIngredientIds() {
+        return ingredients;
+    }
+
+    public int[] getTagIds() {
+        return tags;
+    }
+
+    public List<ObjectId> getRelatedRecipeIds() {
+        return relatedRecipeIds;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? name : "(untitled recipe)";
+    }
+}
@@ -0,0 +1,79 @@
+package org.jhandron.model;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+// Reads and writes only the projected RecipeSummary.FIELDS, straight from and to the BSON stream.
+public class RecipeSummaryCodec implements Codec<RecipeSummary> {
+    private static final int[] NO_TERMS = new int[0];
+
+    @Override
+    public RecipeSummary decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        String name = null;
+        int[] ingredients = NO_TERMS;
+        int[] tags = NO_TERMS;
+        List<ObjectId> related = List.of();
+        long revision = 0;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> {
+                    if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) {
+                        id = reader.readObjectId();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "name" -> name = RecipeCodec.readString(reader);
+                case "ingredients" -> ingredients = orEmpty(RecipeCodec.readTermIds(reader));
+                case "tags" -> tags = orEmpty(RecipeCodec.readTermIds(reader));
+                case "relatedRecipes" -> related = orEmpty(RecipeCodec.readObjectIdList(reader));
+                case "revision" -> revision = RecipeCodec.readLong(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new RecipeSummary(id, name, ingredients, tags, related, revision);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, RecipeSummary value, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (value.getId() != null) {
+            writer.writeObjectId("_id", value.getId());
+        }
+        RecipeCodec.writeString(writer, "name", value.getName());
+        RecipeCodec.writeStringList(writer, "ingredients", value.getIngredients());
+        RecipeCodec.writeStringList(writer, "tags", value.getTags());
+        writer.writeStartArray("relatedRecipes");
+        for (ObjectId id : value.getRelatedRecipeIds()) {
+            writer.writeObjectId(id);
+        }
+        writer.writeEndArray();
+        if (value.getRevision() != 0) {
+            writer.writeInt64("revision", value.getRevision());
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<RecipeSummary> getEncoderClass() {
+        return RecipeSummary.class;
+    }
+
+    private static int[] orEmpty(int[] values) {
+        return values == null ? NO_TERMS : values;
+    }
+
+    private static <T> List<T> orEmpty(List<T> values) {
+        return values == null ? List.of() : values;
+    }
+}
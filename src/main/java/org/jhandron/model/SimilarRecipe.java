@@ -0,0 +1,5 @@
+package org.jhandron.model;
+
+// similarity is the share of ingredients and tags the two have in common, 0 to 1.
+public record SimilarRecipe(RecipeSummary recipe, double similarity) {
+}
@@ -0,0 +1,106 @@
+package org.jhandron.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Each distinct ingredient or tag string is stored once and referred to by an int id. Ids are never persisted
+// and the pool only grows.
+public final class TermDictionary {
+    public static final int NULL_ID = -1;
+
+    private static final TermDictionary SHARED = new TermDictionary();
+    private static final int[] NONE = new int[0];
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Slots are written before the id is handed out, and the arrays are only replaced by larger copies.
+    private volatile String[] terms = new String[1024];
+    private volatile String[] normalized = new String[1024];
+    private int size;
+
+    public static TermDictionary shared() {
+        return SHARED;
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public int intern(String term) {
+        if (term == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(term);
+        return id != null ? id : add(term);
+    }
+
+    public int[] internAll(Collection<String> values) {
+        if (values.isEmpty()) {
+            return NONE;
+        }
+        int[] result = new int[values.size()];
+        int i = 0;
+        for (String value : values) {
+            result[i++] = intern(value);
+        }
+        return result;
+    }
+
+    public String term(int id) {
+        return id == NULL_ID ? null : terms[id];
+    }
+
+    public String normalized(int id) {
+        return id == NULL_ID ? "" : normalized[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // The array is not copied, so it must not change.
+    public List<String> view(int[] termIds) {
+        return termIds.length == 0 ? List.of() : new TermList(termIds);
+    }
+
+    private synchronized int add(String term) {
+        Integer existing = ids.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == terms.length) {
+            terms = Arrays.copyOf(terms, size * 2);
+            normalized = Arrays.copyOf(normalized, size * 2);
+        }
+        String normal = normalize(term);
+        terms[size] = term;
+        normalized[size] = normal.equals(term) ? term : normal;
+        ids.put(term, size);
+        return size++;
+    }
+
+    private final class TermList extends AbstractList<String> implements RandomAccess {
+        private final int[] termIds;
+
+        private TermList(int[] termIds) {
+            this.termIds = termIds;
+        }
+
+        @Override
+        public String get(int index) {
+            return term(termIds[index]);
+        }
+
+        @Override
+        public int size() {
+            return termIds.length;
+        }
+    }
+}
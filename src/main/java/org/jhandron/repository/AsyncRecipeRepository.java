@@ -0,0 +1,192 @@
+package org.jhandron.repository;
+
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
+import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
+import org.bson.types.ObjectId;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Interactive calls use the configured timeout; imports, exports and index builds run until cancelled.
+public class AsyncRecipeRepository implements AutoCloseable {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final RecipeRepository repository;
+    private final Duration timeout;
+    private final ExecutorService executor;
+    private final RecipeWriteQueue writeQueue;
+
+    public AsyncRecipeRepository(RecipeRepository repository, Duration timeout) {
+        this(repository, timeout, new RecipeWriteQueue(repository, RecipeWriteQueue.DEFAULT_FLUSH_INTERVAL,
+                RecipeWriteQueue.DEFAULT_BATCH_SIZE));
+    }
+
+    public AsyncRecipeRepository(RecipeRepository repository, Duration timeout, RecipeWriteQueue writeQueue) {
+        this.repository = repository;
+        this.timeout = timeout;
+        this.writeQueue = writeQueue;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "recipe-io-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Void> ensureIndexes() {
+        return call(repo -> {
+            repo.ensureIndexes();
+            return null;
+        }, null);
+    }
+
+    public CompletableFuture<List<RecipeSummary>> listSummaryPage(RecipeSummary after, int batchSize) {
+        return call(repo -> repo.listSummaryPage(after, batchSize), timeout);
+    }
+
+    public CompletableFuture<List<Recipe>> listPage(RecipeSummary after, int batchSize) {
+        return call(repo -> repo.listPage(after, batchSize), timeout);
+    }
+
+    public CompletableFuture<Long> currentRevision() {
+        return call(RecipeRepository::currentRevision, timeout);
+    }
+
+    public CompletableFuture<Set<ObjectId>> listIds() {
+        return call(RecipeRepository::listIds, timeout);
+    }
+
+    public CompletableFuture<List<RecipeSummary>> changesSince(long revision) {
+        return call(repo -> repo.changesSince(revision), timeout);
+    }
+
+    public boolean hasPendingSave(ObjectId id) {
+        return writeQueue.findPending(id).isPresent();
+    }
+
+    public CompletableFuture<Optional<Recipe>> findById(ObjectId id) {
+        Optional<Recipe> queued = writeQueue.findPending(id);
+        if (queued.isPresent()) {
+            return CompletableFuture.completedFuture(queued);
+        }
+        return call(repo -> repo.findById(id), timeout);
+    }
+
+    public CompletableFuture<List<RecipeHop>> findWithinHops(ObjectId id, int maxHops, LinkDirection direction) {
+        return call(repo -> repo.findWithinHops(id, maxHops, direction), timeout);
+    }
+
+    public CompletableFuture<List<PantryMatch>> findByPantry(Collection<String> pantry, int maxMissing, int limit) {
+        List<String> copy = List.copyOf(pantry);
+        return call(repo -> repo.findByPantry(copy, maxMissing, limit), timeout);
+    }
+
+    public CompletableFuture<RecipeFacets> facetCounts(String nameQuery, List<String> tags,
+                                                       List<String> ingredientKeywords,
+                                                       RecipeRepository.SearchMode mode, int limit) {
+        List<String> tagsCopy = tags == null ? List.of() : List.copyOf(tags);
+        List<String> keywordsCopy = ingredientKeywords == null ? List.of() : List.copyOf(ingredientKeywords);
+        return call(repo -> repo.facetCounts(nameQuery, tagsCopy, keywordsCopy, mode, limit), timeout);
+    }
+
+    // Recipes with queued saves come from the queue.
+    public CompletableFuture<List<Recipe>> findByIds(List<ObjectId> ids) {
+        Map<ObjectId, Recipe> queued = new HashMap<>();
+        List<ObjectId> stored = new ArrayList<>();
+        for (ObjectId id : ids) {
+            writeQueue.findPending(id).ifPresentOrElse(recipe -> queued.put(id, recipe), () -> stored.add(id));
+        }
+        if (stored.isEmpty()) {
+            return CompletableFuture.completedFuture(merge(ids, queued, List.of()));
+        }
+        return call(repo -> merge(ids, queued, repo.findByIds(stored)), timeout);
+    }
+
+    private static List<Recipe> merge(List<ObjectId> ids, Map<ObjectId, Recipe> queued, List<Recipe> stored) {
+        Map<ObjectId, Recipe> found = new HashMap<>(queued);
+        stored.forEach(recipe -> found.put(recipe.getId(), recipe));
+        return new LinkedHashSet<>(ids).stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    // Completes once this save, or a newer save of the same recipe, is written.
+    public CompletableFuture<Recipe> save(Recipe recipe) {
+        return writeQueue.save(recipe);
+    }
+
+    public RecipeWriteQueue.Stats getWriteQueueStats() {
+        return writeQueue.getStats();
+    }
+
+    public CompletableFuture<ImportReport> importFromJson(Path path, ImportOptions options,
+                                                          Consumer<ImportReport.BatchResult> batchListener) {
+        return call(repo -> repo.importFromJson(path, options, batchListener), null);
+    }
+
+    public CompletableFuture<Long> exportAll(Path path, RecipeDumpFormat format) {
+        return call(repo -> repo.exportAll(path, format), null);
+    }
+
+    public CompletableFuture<Long> exportByIds(Path path, Collection<ObjectId> ids, RecipeDumpFormat format) {
+        return call(repo -> repo.exportByIds(path, ids, format), null);
+    }
+
+    private <T> CompletableFuture<T> call(RepositoryCall<T> call, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(call.call(repository));
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+            return result;
+        }
+        result.whenComplete((value, ex) -> {
+            if (ex != null) {
+                task.cancel(true);
+            }
+        });
+        return timeout == null ? result : result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        try {
+            writeQueue.close();
+        } finally {
+            executor.shutdownNow();
+            repository.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RepositoryCall<T> {
+        T call(RecipeRepository repository) throws Exception;
+    }
+}
@@ -0,0 +1,294 @@
+package org.jhandron.repository;
+
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
+import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Recipes are copied on the way in and out, so editors never share an instance with the cache.
+public class CachingRecipeRepository implements RecipeRepository {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final RecipeRepository delegate;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<ObjectId, CachedRecipe> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachingRecipeRepository(RecipeRepository delegate, int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(cache.size(), cachedBytes, hits, misses, evictions);
+    }
+
+    @Override
+    public void ensureIndexes() {
+        delegate.ensureIndexes();
+    }
+
+    @Override
+    public String storageId() {
+        return delegate.storageId();
+    }
+
+    @Override
+    public long currentRevision() {
+        return delegate.currentRevision();
+    }
+
+    @Override
+    public Set<ObjectId> listIds() {
+        return delegate.listIds();
+    }
+
+    @Override
+    public List<RecipeSummary> changesSince(long revision) {
+        List<RecipeSummary> changes = delegate.changesSince(revision);
+        synchronized (this) {
+            for (RecipeSummary change : changes) {
+                CachedRecipe cached = cache.get(change.getId());
+                if (cached != null && cached.recipe().getRevision() < change.getRevision()) {
+                    remove(change.getId());
+                }
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public List<Recipe> listAll() {
+        return delegate.listAll();
+    }
+
+    @Override
+    public List<RecipeSummary> listSummaryPage(RecipeSummary after, int batchSize) {
+        return delegate.listSummaryPage(after, batchSize);
+    }
+
+    // Bulk reads go around the cache; they would only push out the recipes people have open.
+    @Override
+    public List<Recipe> listPage(RecipeSummary after, int batchSize) {
+        return delegate.listPage(after, batchSize);
+    }
+
+    @Override
+    public Optional<Recipe> findById(ObjectId id) {
+        Recipe cached = lookup(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Recipe> found = delegate.findById(id);
+        found.ifPresent(this::store);
+        return found;
+    }
+
+    @Override
+    public List<Recipe> findByIds(Collection<ObjectId> ids) {
+        Objects.requireNonNull(ids, "ids cannot be null");
+        Set<ObjectId> distinct = new LinkedHashSet<>(ids);
+        Map<ObjectId, Recipe> found = new HashMap<>(distinct.size() * 2);
+        List<ObjectId> missing = new ArrayList<>();
+        for (ObjectId id : distinct) {
+            Recipe cached = lookup(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Recipe recipe : delegate.findByIds(missing)) {
+                store(recipe);
+                found.put(recipe.getId(), recipe);
+            }
+        }
+        List<Recipe> ordered = new ArrayList<>(found.size());
+        for (ObjectId id : distinct) {
+            Recipe recipe = found.get(id);
+            if (recipe != null) {
+                ordered.add(recipe);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public List<Recipe> search(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                               SearchMode mode) {
+        return delegate.search(nameQuery, tags, ingredientKeywords, mode);
+    }
+
+    @Override
+    public List<RecipeHop> findWithinHops(ObjectId id, int maxHops, LinkDirection direction) {
+        return delegate.findWithinHops(id, maxHops, direction);
+    }
+
+    @Override
+    public List<PantryMatch> findByPantry(Collection<String> pantry, int maxMissing, int limit) {
+        return delegate.findByPantry(pantry, maxMissing, limit);
+    }
+
+    @Override
+    public RecipeFacets facetCounts(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                                    SearchMode mode, int limit) {
+        return delegate.facetCounts(nameQuery, tags, ingredientKeywords, mode, limit);
+    }
+
+    @Override
+    public Recipe save(Recipe recipe) {
+        Recipe saved = delegate.save(recipe);
+        store(saved);
+        return saved;
+    }
+
+    @Override
+    public Map<ObjectId, String> saveAll(List<Recipe> recipes) {
+        Map<ObjectId, String> rejected;
+        try {
+            rejected = delegate.saveAll(recipes);
+        } catch (RuntimeException ex) {
+            // Part of the group may have been written, so none of the cached copies can be trusted.
+            recipes.forEach(recipe -> invalidate(recipe.getId()));
+            throw ex;
+        }
+        for (Recipe recipe : recipes) {
+            if (rejected.containsKey(recipe.getId())) {
+                invalidate(recipe.getId());
+            } else {
+                store(recipe);
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public long exportAll(Path path, RecipeDumpFormat format) throws IOException {
+        return delegate.exportAll(path, format);
+    }
+
+    @Override
+    public long exportByIds(Path path, Collection<ObjectId> ids, RecipeDumpFormat format) throws IOException {
+        return delegate.exportByIds(path, ids, format);
+    }
+
+    @Override
+    public ImportReport importFromFile(Path path, RecipeDumpFormat format, ImportOptions options,
+                                       Consumer<ImportReport.BatchResult> batchListener) throws IOException {
+        try {
+            return delegate.importFromFile(path, format, options, batchListener);
+        } finally {
+            // An import can overwrite any recipe, and tracking every id it touched would cost more than refilling.
+            clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private synchronized Recipe lookup(ObjectId id) {
+        CachedRecipe cached = id == null ? null : cache.get(id);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.recipe().copy();
+    }
+
+    private void store(Recipe recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        Recipe copy = recipe.copy();
+        long bytes = estimateBytes(copy);
+        synchronized (this) {
+            CachedRecipe current = cache.get(copy.getId());
+            if (current != null && copy.getRevision() != 0 && current.recipe().getRevision() > copy.getRevision()) {
+                // A read that raced a save must not put the older version back.
+                return;
+            }
+            remove(copy.getId());
+            if (bytes > maxBytes) {
+                return;
+            }
+            cache.put(copy.getId(), new CachedRecipe(copy, bytes));
+            cachedBytes += bytes;
+            Iterator<CachedRecipe> eldest = cache.values().iterator();
+            while (cache.size() > maxEntries || cachedBytes > maxBytes) {
+                cachedBytes -= eldest.next().bytes();
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private synchronized void invalidate(ObjectId id) {
+        if (id != null) {
+            remove(id);
+        }
+    }
+
+    private synchronized void clear() {
+        cache.clear();
+        cachedBytes = 0;
+    }
+
+    private void remove(ObjectId id) {
+        CachedRecipe removed = cache.remove(id);
+        if (removed != null) {
+            cachedBytes -= removed.bytes();
+        }
+    }
+
+    // Rough heap footprint; term strings live in the shared TermDictionary.
+    private static long estimateBytes(Recipe recipe) {
+        long bytes = 128 + stringBytes(recipe.getName()) + stringBytes(recipe.getInstructions());
+        bytes += 4L * (recipe.getIngredients().size() + recipe.getTags().size());
+        return bytes + 32L * recipe.getRelatedRecipeIds().size();
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    private record CachedRecipe(Recipe recipe, long bytes) {
+    }
+
+    public record Stats(int entries, long bytes, long hits, long misses, long evictions) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
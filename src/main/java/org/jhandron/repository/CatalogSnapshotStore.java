@@ -0,0 +1,141 @@
+package org.jhandron.repository;
+
+import org.jhandron.model.RecipeSummary;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+// A snapshot written by another format version, or for another store, is ignored rather than misread.
+public class CatalogSnapshotStore {
+    private static final int MAGIC = 0x52434e53;
+    private static final int FORMAT_VERSION = 3;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path path;
+    private final String storageId;
+
+    public CatalogSnapshotStore(Path path, String storageId) {
+        this.path = Objects.requireNonNull(path, "path cannot be null");
+        this.storageId = Objects.requireNonNull(storageId, "storageId cannot be null");
+    }
+
+    public static Path defaultPath(boolean p_testEnvironment, String storageName) {
+        String override = System.getenv("RECIPE_SNAPSHOT_PATH");
+        if (override != null && !override.isBlank()) {
+            return Path.of(override);
+        }
+        String storage = storageName.equals("mongo") ? "" : "-" + storageName;
+        String fileName = "catalog" + storage + (p_testEnvironment ? "-dev" : "") + ".snapshot";
+        return Path.of(System.getProperty("user.home"), ".recipenotebook", fileName);
+    }
+
+    public Optional<CatalogSnapshot> read() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !storageId.equals(readString(in))) {
+                return Optional.empty();
+            }
+            long revision = in.readLong();
+            int count = in.readInt();
+            List<RecipeSummary> recipes = new ArrayList<>(count);
+            byte[] id = new byte[12];
+            for (int i = 0; i < count; i++) {
+                in.readFully(id);
+                ObjectId recipeId = new ObjectId(id);
+                String name = readString(in);
+                List<String> ingredients = readStrings(in);
+                List<String> tags = readStrings(in);
+                int relatedCount = in.readInt();
+                List<ObjectId> related = new ArrayList<>(relatedCount);
+                for (int r = 0; r < relatedCount; r++) {
+                    in.readFully(id);
+                    related.add(new ObjectId(id));
+                }
+                recipes.add(new RecipeSummary(recipeId, name, ingredients, tags, related, in.readLong()));
+            }
+            return Optional.of(new CatalogSnapshot(revision, recipes));
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        }
+    }
+
+    public void write(CatalogSnapshot snapshot) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, storageId);
+            out.writeLong(snapshot.revision());
+            List<RecipeSummary> recipes = snapshot.recipes().stream()
+                    .filter(recipe -> recipe.getId() != null)
+                    .toList();
+            out.writeInt(recipes.size());
+            for (RecipeSummary recipe : recipes) {
+                out.write(recipe.getId().toByteArray());
+                writeString(out, recipe.getName());
+                writeStrings(out, recipe.getIngredients());
+                writeStrings(out, recipe.getTags());
+                out.writeInt(recipe.getRelatedRecipeIds().size());
+                for (ObjectId related : recipe.getRelatedRecipeIds()) {
+                    out.write(related.toByteArray());
+                }
+                out.writeLong(recipe.getRevision());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    public record CatalogSnapshot(long revision, List<RecipeSummary> recipes) {
+    }
+}
@@ -0,0 +1,46 @@
+package org.jhandron.repository;
+
+public record ImportOptions(int batchSize, int parserThreads, int writerThreads, int queueCapacity,
+                            boolean memoryMapped) {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_WRITER_THREADS = 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    public ImportOptions {
+        requirePositive(batchSize, "batchSize");
+        requirePositive(parserThreads, "parserThreads");
+        requirePositive(writerThreads, "writerThreads");
+        requirePositive(queueCapacity, "queueCapacity");
+    }
+
+    public static ImportOptions defaults() {
+        int parsers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new ImportOptions(DEFAULT_BATCH_SIZE, parsers, DEFAULT_WRITER_THREADS, DEFAULT_QUEUE_CAPACITY, false);
+    }
+
+    public ImportOptions withBatchSize(int batchSize) {
+        return new ImportOptions(batchSize, parserThreads, writerThreads, queueCapacity, memoryMapped);
+    }
+
+    public ImportOptions withParserThreads(int parserThreads) {
+        return new ImportOptions(batchSize, parserThreads, writerThreads, queueCapacity, memoryMapped);
+    }
+
+    public ImportOptions withWriterThreads(int writerThreads) {
+        return new ImportOptions(batchSize, parserThreads, writerThreads, queueCapacity, memoryMapped);
+    }
+
+    public ImportOptions withQueueCapacity(int queueCapacity) {
+        return new ImportOptions(batchSize, parserThreads, writerThreads, queueCapacity, memoryMapped);
+    }
+
+    public ImportOptions withMemoryMapped(boolean memoryMapped) {
+        return new ImportOptions(batchSize, parserThreads, writerThreads, queueCapacity, memoryMapped);
+    }
+
+    private static void requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+    }
+}
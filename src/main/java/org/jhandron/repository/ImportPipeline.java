@@ -0,0 +1,354 @@
+package org.jhandron.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+final class ImportPipeline<C, T> {
+    private static final Object END = new Object();
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final MongoCollection<T> collection;
+    private final RecipeRevisions revisions;
+    private final BiFunction<T, RevisionStamp, T> stamper;
+    private final ImportOptions options;
+    private final Consumer<ImportReport.BatchResult> batchListener;
+    private final ImportReport report;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private ExecutorService executor;
+
+    ImportPipeline(MongoCollection<T> collection, RecipeRevisions revisions, BiFunction<T, RevisionStamp, T> stamper,
+                   ImportOptions options, ImportReport report, Consumer<ImportReport.BatchResult> batchListener) {
+        this.collection = collection;
+        this.revisions = revisions;
+        this.stamper = stamper;
+        this.options = options;
+        this.report = report;
+        this.batchListener = batchListener;
+    }
+
+    // Documents are routed to writers by _id and each writer keeps input order, so when a file repeats an _id
+    // the last line wins, as it did when imports were written one batch at a time.
+    ImportReport run(ChunkSource<C> source, ChunkDecoder<C, T> decoder) throws IOException {
+        BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(options.queueCapacity());
+        // Unbounded, but the reader holds a permit for every chunk until it is dispatched.
+        BlockingQueue<Object> decoded = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(options.queueCapacity() + options.parserThreads());
+        List<BlockingQueue<Object>> writerQueues = new ArrayList<>();
+        for (int i = 0; i < options.writerThreads(); i++) {
+            writerQueues.add(new ArrayBlockingQueue<>(options.queueCapacity()));
+        }
+        long started = System.nanoTime();
+        executor = Executors.newFixedThreadPool(2 + options.parserThreads() + options.writerThreads(),
+                daemonThreads("recipe-import-" + POOL_COUNTER.incrementAndGet()));
+        try {
+            Future<?> readerTask = submit(() -> readChunks(source, chunks, inFlight));
+            List<Future<?>> parserTasks = new ArrayList<>();
+            for (int i = 0; i < options.parserThreads(); i++) {
+                parserTasks.add(submit(() -> decodeChunks(decoder, chunks, decoded)));
+            }
+            Future<?> dispatcherTask = submit(() -> dispatchBatches(decoded, writerQueues, inFlight));
+            List<Future<?>> writerTasks = new ArrayList<>();
+            for (BlockingQueue<Object> queue : writerQueues) {
+                writerTasks.add(submit(() -> writeBatches(queue)));
+            }
+
+            await(readerTask);
+            for (int i = 0; i < options.parserThreads(); i++) {
+                putOrFail(chunks, END);
+            }
+            for (Future<?> task : parserTasks) {
+                await(task);
+            }
+            putOrFail(decoded, END);
+            await(dispatcherTask);
+            for (Future<?> task : writerTasks) {
+                await(task);
+            }
+            report.setElapsedNanos(System.nanoTime() - started);
+            return report;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Future<?> submit(Stage stage) {
+        return executor.submit((Callable<Void>) () -> {
+            try {
+                stage.run();
+                return null;
+            } catch (Exception ex) {
+                // The first failing stage stops the others so nothing stays blocked on a full queue.
+                if (failure.compareAndSet(null, ex)) {
+                    executor.shutdownNow();
+                }
+                throw ex;
+            }
+        });
+    }
+
+    private void putOrFail(BlockingQueue<Object> queue, Object item) throws IOException, InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            rethrowFailure();
+        }
+    }
+
+    private void await(Future<?> task) throws IOException, InterruptedException {
+        try {
+            task.get();
+        } catch (ExecutionException ex) {
+            rethrowFailure();
+            throw new IOException("Import failed: " + ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Exception cause = failure.get();
+        if (cause == null) {
+            return;
+        }
+        if (cause instanceof IOException io) {
+            throw io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        throw new IOException("Import failed: " + cause.getMessage(), cause);
+    }
+
+    private void readChunks(ChunkSource<C> source, BlockingQueue<Object> chunks, Semaphore inFlight)
+            throws IOException, InterruptedException {
+        long sequence = 0;
+        C chunk;
+        while ((chunk = source.nextChunk()) != null) {
+            inFlight.acquire();
+            chunks.put(new Sequenced<>(sequence++, chunk));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void decodeChunks(ChunkDecoder<C, T> decoder, BlockingQueue<Object> chunks,
+                              BlockingQueue<Object> decoded) throws InterruptedException {
+        Object item;
+        while ((item = chunks.take()) != END) {
+            Sequenced<C> chunk = (Sequenced<C>) item;
+            decoded.put(new Sequenced<>(chunk.sequence(), decoder.decode(chunk.value(), report)));
+        }
+    }
+
+    // Puts decoded chunks back in file order and hands each document to the writer that owns its _id. A writer
+    // batch holds each _id once, keeping the later line.
+    @SuppressWarnings("unchecked")
+    private void dispatchBatches(BlockingQueue<Object> decoded, List<BlockingQueue<Object>> writerQueues,
+                                 Semaphore inFlight) throws InterruptedException {
+        Map<Long, List<DecodedBatch<T>>> waiting = new HashMap<>();
+        List<WriterBatch<T>> pending = new ArrayList<>();
+        for (int i = 0; i < writerQueues.size(); i++) {
+            pending.add(new WriterBatch<>());
+        }
+        SeenIds seen = new SeenIds();
+        long next = 0;
+        Object item;
+        while ((item = decoded.take()) != END) {
+            Sequenced<List<DecodedBatch<T>>> result = (Sequenced<List<DecodedBatch<T>>>) item;
+            waiting.put(result.sequence(), result.value());
+            List<DecodedBatch<T>> batches;
+            while ((batches = waiting.remove(next)) != null) {
+                next++;
+                inFlight.release();
+                for (DecodedBatch<T> batch : batches) {
+                    for (int i = 0; i < batch.models().size(); i++) {
+                        ReplaceOneModel<T> model = batch.models().get(i);
+                        Object id = ((Map<?, ?>) model.getReplacement()).get("_id");
+                        if (!seen.add(id)) {
+                            report.addDuplicate();
+                        }
+                        int writer = Math.floorMod(id.hashCode(), writerQueues.size());
+                        WriterBatch<T> target = pending.get(writer);
+                        target.add(id, batch.positions()[i], model);
+                        if (target.size() >= options.batchSize()) {
+                            writerQueues.get(writer).put(target.drain());
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < writerQueues.size(); i++) {
+            if (pending.get(i).size() > 0) {
+                writerQueues.get(i).put(pending.get(i).drain());
+            }
+            writerQueues.get(i).put(END);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeBatches(BlockingQueue<Object> batches) throws InterruptedException {
+        Object batch;
+        while ((batch = batches.take()) != END) {
+            batchListener.accept(writeBatch((DecodedBatch<T>) batch));
+        }
+    }
+
+    // Each batch gets its own revision, taken just before it is written and released right after, so readers
+    // polling for changes never move past a batch that has not landed yet.
+    private ImportReport.BatchResult writeBatch(DecodedBatch<T> batch) {
+        BulkWriteResult result;
+        int errors = 0;
+        RevisionStamp stamp = revisions.next();
+        try {
+            List<ReplaceOneModel<T>> models = new ArrayList<>(batch.models().size());
+            for (ReplaceOneModel<T> model : batch.models()) {
+                models.add(new ReplaceOneModel<>(model.getFilter(), stamper.apply(model.getReplacement(), stamp),
+                        model.getReplaceOptions()));
+            }
+            result = collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException ex) {
+            result = ex.getWriteResult();
+            for (BulkWriteError error : ex.getWriteErrors()) {
+                report.addFailure(batch.positions()[error.getIndex()], error.getMessage());
+                errors++;
+            }
+        } finally {
+            revisions.release(stamp);
+        }
+        return report.addBatch(batch.models().size(), result.getUpserts().size(), result.getMatchedCount(),
+                result.getModifiedCount(), errors);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    @FunctionalInterface
+    interface ChunkSource<C> {
+        C nextChunk() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface ChunkDecoder<C, T> {
+        List<DecodedBatch<T>> decode(C chunk, ImportReport report);
+    }
+
+    record DecodedBatch<T>(long[] positions, List<ReplaceOneModel<T>> models) {
+    }
+
+    private record Sequenced<V>(long sequence, V value) {
+    }
+
+    private static final class WriterBatch<T> {
+        private final Map<Object, Positioned<T>> models = new LinkedHashMap<>();
+
+        void add(Object id, long position, ReplaceOneModel<T> model) {
+            models.remove(id);
+            models.put(id, new Positioned<>(position, model));
+        }
+
+        int size() {
+            return models.size();
+        }
+
+        DecodedBatch<T> drain() {
+            long[] positions = new long[models.size()];
+            List<ReplaceOneModel<T>> drained = new ArrayList<>(models.size());
+            for (Positioned<T> entry : models.values()) {
+                positions[drained.size()] = entry.position();
+                drained.add(entry.model());
+            }
+            models.clear();
+            return new DecodedBatch<>(positions, drained);
+        }
+    }
+
+    private record Positioned<T>(long position, ReplaceOneModel<T> model) {
+    }
+
+    // Remembers every _id seen so far as a 64-bit fingerprint, which keeps large imports to 16 bytes an id.
+    static final class SeenIds {
+        private long[] slots = new long[1 << 16];
+        private int size;
+
+        boolean add(Object id) {
+            long fingerprint = fingerprint(id);
+            if (size * 2 >= slots.length) {
+                grow();
+            }
+            return insert(slots, fingerprint);
+        }
+
+        private boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == fingerprint) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = fingerprint;
+            if (table == slots) {
+                size++;
+            }
+            return true;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            for (long fingerprint : old) {
+                if (fingerprint != 0) {
+                    insert(slots, fingerprint);
+                }
+            }
+        }
+
+        private static long fingerprint(Object id) {
+            String text = id.toString();
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < text.length(); i++) {
+                hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash == 0 ? 1 : hash;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.jhandron.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class ImportReport {
+    private final List<BatchResult> batches = new ArrayList<>();
+    private final List<FailedLine> failures = new ArrayList<>();
+    private final String unit;
+    private long inputBytes;
+    private int duplicates;
+    private long elapsedNanos;
+
+    ImportReport(String unit) {
+        this.unit = unit;
+    }
+
+    synchronized BatchResult addBatch(int documents, int inserted, int matched, int modified, int errors) {
+        BatchResult batch = new BatchResult(batches.size() + 1, documents, inserted, matched, modified, errors);
+        batches.add(batch);
+        return batch;
+    }
+
+    synchronized void addFailure(long lineNumber, String message) {
+        failures.add(new FailedLine(unit, lineNumber, message));
+    }
+
+    synchronized void addDuplicate() {
+        duplicates++;
+    }
+
+    synchronized void setInputBytes(long inputBytes) {
+        this.inputBytes = inputBytes;
+    }
+
+    synchronized void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    synchronized long[] getFailurePositions() {
+        return failures.stream().mapToLong(FailedLine::lineNumber).toArray();
+    }
+
+    synchronized void renumberFailures(Map<Long, Long> positions) {
+        failures.replaceAll(failure -> new FailedLine(failure.unit(),
+                positions.getOrDefault(failure.lineNumber(), failure.lineNumber()), failure.message()));
+    }
+
+    public synchronized long getInputBytes() {
+        return inputBytes;
+    }
+
+    public synchronized long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public synchronized double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (inputBytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+    }
+
+    public synchronized double getDocumentsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getImportedCount() / (elapsedNanos / 1e9);
+    }
+
+    public synchronized List<BatchResult> getBatches() {
+        return List.copyOf(batches);
+    }
+
+    public synchronized List<FailedLine> getFailures() {
+        List<FailedLine> sorted = new ArrayList<>(failures);
+        sorted.sort(Comparator.comparingLong(FailedLine::lineNumber));
+        return sorted;
+    }
+
+    public synchronized int getImportedCount() {
+        return batches.stream().mapToInt(batch -> batch.documents() - batch.errors()).sum();
+    }
+
+    public synchronized int getInsertedCount() {
+        return batches.stream().mapToInt(BatchResult::inserted).sum();
+    }
+
+    public synchronized int getMatchedCount() {
+        return batches.stream().mapToInt(BatchResult::matched).sum();
+    }
+
+    public synchronized int getModifiedCount() {
+        return batches.stream().mapToInt(BatchResult::modified).sum();
+    }
+
+    // Lines whose _id already appeared earlier in the file; the last copy of each recipe is the one kept.
+    public synchronized int getDuplicateCount() {
+        return duplicates;
+    }
+
+    public synchronized boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public record BatchResult(int batchNumber, int documents, int inserted, int matched, int modified, int errors) {
+    }
+
+    public record FailedLine(String unit, long lineNumber, String message) {
+        @Override
+        public String toString() {
+            return unit + " " + lineNumber + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package org.jhandron.repository;
+
+import org.jhandron.model.FacetCount;
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
+import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
+import org.jhandron.model.TermDictionary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Appends skip the fsync unless RECIPE_LOCAL_SYNC_WRITES is set.
+public class LocalRecipeRepository implements RecipeRepository {
+    private static final Comparator<RecipeSummary> NAME_ORDER = Comparator
+            .comparing(RecipeSummary::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(RecipeSummary::getId);
+    private static final Comparator<RecipeSummary> REVISION_ORDER = Comparator
+            .comparingLong(RecipeSummary::getRevision)
+            .thenComparing(RecipeSummary::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    private static final long COMPACTION_CHECK_MINUTES = 1;
+    private static final long COMPACTION_MIN_BYTES = 4L * 1024 * 1024;
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+    private final Map<ObjectId, RecipeSummary> summaries = new HashMap<>();
+    private final TreeSet<RecipeSummary> byName = new TreeSet<>(NAME_ORDER);
+    private final TreeSet<RecipeSummary> byRevision = new TreeSet<>(REVISION_ORDER);
+    private final Map<ObjectId, Set<ObjectId>> backlinks = new HashMap<>();
+    private final ScheduledExecutorService compactor;
+    private RecipeLog log;
+    private Path path;
+    private long revision;
+
+    private LocalRecipeRepository() {
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recipe-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static LocalRecipeRepository open(Path path) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        boolean syncWrites = Boolean.parseBoolean(System.getenv("RECIPE_LOCAL_SYNC_WRITES"));
+        LocalRecipeRepository repository = new LocalRecipeRepository();
+        repository.path = path.toAbsolutePath().normalize();
+        repository.log = RecipeLog.open(path, syncWrites, repository::index);
+        repository.compactor.scheduleWithFixedDelay(repository::compactIfNeeded, COMPACTION_CHECK_MINUTES,
+                COMPACTION_CHECK_MINUTES, TimeUnit.MINUTES);
+        return repository;
+    }
+
+    public static Path defaultPath(boolean p_testEnvironment) {
+        String override = System.getenv("RECIPE_LOCAL_STORE_PATH");
+        if (override != null && !override.isBlank()) {
+            return Path.of(override);
+        }
+        String fileName = p_testEnvironment ? "recipes-dev.log" : "recipes.log";
+        return Path.of(System.getProperty("user.home"), ".recipenotebook", fileName);
+    }
+
+    @Override
+    public String storageId() {
+        return "local:" + path;
+    }
+
+    @Override
+    public void ensureIndexes() {
+        // Every lookup is served from the in-memory indexes rebuilt when the log is opened.
+    }
+
+    @Override
+    public synchronized long currentRevision() {
+        return revision;
+    }
+
+    @Override
+    public synchronized Set<ObjectId> listIds() {
+        return new HashSet<>(summaries.keySet());
+    }
+
+    @Override
+    public synchronized List<RecipeSummary> changesSince(long since) {
+        if (since >= revision) {
+            return List.of();
+        }
+        // No recipe has a null id, so this sorts before every recipe at since + 1.
+        RecipeSummary first = new RecipeSummary(null, null, List.of(), List.of(), List.of(), since + 1);
+        return List.copyOf(byRevision.tailSet(first, true));
+    }
+
+    @Override
+    public List<Recipe> listAll() {
+        return readAll(matching(summary -> true));
+    }
+
+    @Override
+    public synchronized List<RecipeSummary> listSummaryPage(RecipeSummary after, int batchSize) {
+        Collection<RecipeSummary> tail = after == null ? byName : byName.tailSet(after, false);
+        return tail.stream().limit(batchSize).toList();
+    }
+
+    @Override
+    public Optional<Recipe> findById(ObjectId id) {
+        try {
+            return log.read(id);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public List<Recipe> findByIds(Collection<ObjectId> ids) {
+        Objects.requireNonNull(ids, "ids cannot be null");
+        return readAll(List.copyOf(new LinkedHashSet<>(ids)));
+    }
+
+    @Override
+    public List<Recipe> search(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                               SearchMode mode) {
+        return readAll(matching(searchFilter(nameQuery, tags, ingredientKeywords, mode)));
+    }
+
+    @Override
+    public synchronized RecipeFacets facetCounts(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                                                 SearchMode mode, int limit) {
+        if (limit <= 0) {
+            return RecipeFacets.EMPTY;
+        }
+        Map<String, Integer> tagCounts = new HashMap<>();
+        Map<String, Integer> ingredientCounts = new HashMap<>();
+        Predicate<RecipeSummary> filter = searchFilter(nameQuery, tags, ingredientKeywords, mode);
+        for (RecipeSummary summary : byName) {
+            if (filter.test(summary)) {
+                countDistinct(summary.getTags(), tagCounts);
+                countDistinct(summary.getIngredients(), ingredientCounts);
+            }
+        }
+        return new RecipeFacets(topCounts(tagCounts, limit), topCounts(ingredientCounts, limit));
+    }
+
+    private static void countDistinct(List<String> values, Map<String, Integer> counts) {
+        Set<String> seen = new HashSet<>();
+        for (String value : values) {
+            String normalized = TermDictionary.normalize(value);
+            if (!normalized.isEmpty() && seen.add(normalized)) {
+                counts.merge(normalized, 1, Integer::sum);
+            }
+        }
+    }
+
+    private static List<FacetCount> topCounts(Map<String, Integer> counts, int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> new FacetCount(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private static Predicate<RecipeSummary> searchFilter(String nameQuery, List<String> tags,
+                                                         List<String> ingredientKeywords, SearchMode mode) {
+        Predicate<RecipeSummary> filter = summary -> true;
+        if (nameQuery != null && !nameQuery.isBlank()) {
+            String trimmed = nameQuery.trim();
+            filter = filter.and(summary -> summary.getName() != null && (mode == SearchMode.INDEXED
+                    ? summary.getName().regionMatches(true, 0, trimmed, 0, trimmed.length())
+                    : lower(summary.getName()).contains(lower(trimmed))));
+        }
+        List<String> cleanedTags = clean(tags);
+        if (!cleanedTags.isEmpty()) {
+            filter = filter.and(summary -> summary.getTags().containsAll(cleanedTags));
+        }
+        List<String> cleanedKeywords = clean(ingredientKeywords).stream().map(LocalRecipeRepository::lower).toList();
+        if (!cleanedKeywords.isEmpty()) {
+            filter = filter.and(summary -> summary.getIngredients().stream()
+                    .map(LocalRecipeRepository::lower)
+                    .anyMatch(ingredient -> cleanedKeywords.stream().anyMatch(ingredient::contains)));
+        }
+        return filter;
+    }
+
+    @Override
+    public synchronized List<RecipeHop> findWithinHops(ObjectId id, int maxHops, LinkDirection direction) {
+        Objects.requireNonNull(direction, "direction cannot be null");
+        if (id == null || !summaries.containsKey(id)) {
+            return List.of();
+        }
+        Set<ObjectId> seen = new HashSet<>(List.of(id));
+        List<ObjectId> frontier = List.of(id);
+        List<RecipeHop> hops = new ArrayList<>();
+        for (int hop = 1; hop <= maxHops && !frontier.isEmpty(); hop++) {
+            List<RecipeSummary> next = new ArrayList<>();
+            for (ObjectId current : frontier) {
+                if (direction != LinkDirection.INCOMING) {
+                    for (ObjectId target : summaries.get(current).getRelatedRecipeIds()) {
+                        RecipeSummary linked = summaries.get(target);
+                        if (linked != null && seen.add(target)) {
+                            next.add(linked);
+                        }
+                    }
+                }
+                if (direction != LinkDirection.OUTGOING) {
+                    for (ObjectId source : backlinks.getOrDefault(current, Set.of())) {
+                        if (seen.add(source)) {
+                            next.add(summaries.get(source));
+                        }
+                    }
+                }
+            }
+            next.sort(NAME_ORDER);
+            for (RecipeSummary recipe : next) {
+                hops.add(new RecipeHop(recipe, hop));
+            }
+            frontier = next.stream().map(RecipeSummary::getId).toList();
+        }
+        return hops;
+    }
+
+    // Walks the recipes in name order, so each missing count only ever needs its first `limit` recipes.
+    @Override
+    public synchronized List<PantryMatch> findByPantry(Collection<String> pantry, int maxMissing, int limit) {
+        Set<String> have = new HashSet<>();
+        for (String ingredient : pantry) {
+            have.add(TermDictionary.normalize(ingredient));
+        }
+        have.remove("");
+        if (have.isEmpty() || maxMissing < 0 || limit <= 0) {
+            return List.of();
+        }
+        List<List<PantryMatch>> byMissing = new ArrayList<>();
+        for (int i = 0; i <= maxMissing; i++) {
+            byMissing.add(new ArrayList<>());
+        }
+        TermDictionary terms = TermDictionary.shared();
+        for (RecipeSummary summary : byName) {
+            Set<String> listed = new HashSet<>(have);
+            List<String> missing = new ArrayList<>();
+            boolean covered = false;
+            for (int ingredientId : summary.getIngredientIds()) {
+                String ingredient = terms.normalized(ingredientId);
+                if (have.contains(ingredient)) {
+                    covered = true;
+                } else if (!ingredient.isEmpty() && listed.add(ingredient)) {
+                    missing.add(terms.term(ingredientId).trim());
+                }
+            }
+            if (covered && missing.size() <= maxMissing && byMissing.get(missing.size()).size() < limit) {
+                byMissing.get(missing.size()).add(new PantryMatch(summary, missing));
+                if (missing.isEmpty() && byMissing.get(0).size() == limit) {
+                    break;
+                }
+            }
+        }
+        return byMissing.stream().flatMap(List::stream).limit(limit).toList();
+    }
+
+    @Override
+    public Recipe save(Recipe recipe) {
+        Objects.requireNonNull(recipe, "recipe cannot be null");
+        saveAll(List.of(recipe));
+        return recipe;
+    }
+
+    @Override
+    public synchronized Map<ObjectId, String> saveAll(List<Recipe> batch) {
+        if (batch.isEmpty()) {
+            return Map.of();
+        }
+        long next = revision + 1;
+        Date updatedAt = new Date();
+        for (Recipe recipe : batch) {
+            if (recipe.getId() == null) {
+                recipe.setId(new ObjectId());
+            }
+            recipe.setRevision(next);
+            recipe.setUpdatedAt(updatedAt);
+        }
+        try {
+            log.append(batch);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        batch.forEach(this::index);
+        return Map.of();
+    }
+
+    @Override
+    public long exportAll(Path path, RecipeDumpFormat format) throws IOException {
+        return export(path, matching(summary -> true), format);
+    }
+
+    @Override
+    public long exportByIds(Path path, Collection<ObjectId> ids, RecipeDumpFormat format) throws IOException {
+        Objects.requireNonNull(ids, "ids cannot be null");
+        Set<ObjectId> wanted = new HashSet<>(ids);
+        return export(path, matching(summary -> wanted.contains(summary.getId())), format);
+    }
+
+    private long export(Path path, List<ObjectId> ids, RecipeDumpFormat format) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        Objects.requireNonNull(format, "format cannot be null");
+        DocumentCodec codec = new DocumentCodec();
+        EncoderContext context = EncoderContext.builder().build();
+        long count = 0;
+        try (OutputStream out = format.openOutput(path)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            for (ObjectId id : ids) {
+                Optional<Recipe> recipe = log.read(id);
+                if (recipe.isEmpty()) {
+                    continue;
+                }
+                // toDocument leaves out the revision fields, which an import stamps afresh.
+                Document doc = recipe.get().toDocument();
+                if (format.isBinary()) {
+                    BasicOutputBuffer buffer = new BasicOutputBuffer();
+                    codec.encode(new BsonBinaryWriter(buffer), doc, context);
+                    buffer.pipe(out);
+                } else {
+                    writer.write(doc.toJson(EXPORT_JSON_SETTINGS));
+                    writer.write(System.lineSeparator());
+                }
+                count++;
+            }
+            writer.flush();
+        }
+        return count;
+    }
+
+    @Override
+    public ImportReport importFromFile(Path path, RecipeDumpFormat format, ImportOptions options,
+                                       Consumer<ImportReport.BatchResult> batchListener) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        Objects.requireNonNull(format, "format cannot be null");
+        Objects.requireNonNull(options, "options cannot be null");
+        Objects.requireNonNull(batchListener, "batchListener cannot be null");
+        ImportReport report = new ImportReport(format.isBinary() ? "Document" : "Line");
+        report.setInputBytes(Files.size(path));
+        long started = System.nanoTime();
+        ImportPipeline.SeenIds seen = new ImportPipeline.SeenIds();
+        // Appending to one log is sequential anyway, so the parallel pipeline options do not apply here.
+        try (InputStream in = format.openInput(path)) {
+            if (format.isBinary()) {
+                DocumentCodec codec = new DocumentCodec();
+                DecoderContext context = DecoderContext.builder().build();
+                ImportPipeline.ChunkSource<RecipeDumpReaders.BinaryChunk> source =
+                        RecipeDumpReaders.bsonDocuments(in, options.batchSize());
+                RecipeDumpReaders.BinaryChunk chunk;
+                while ((chunk = source.nextChunk()) != null) {
+                    List<Recipe> batch = new ArrayList<>(chunk.documents().size());
+                    for (int i = 0; i < chunk.documents().size(); i++) {
+                        try {
+                            Document doc = codec.decode(new BsonBinaryReader(
+                                    ByteBuffer.wrap(chunk.documents().get(i))), context);
+                            batch.add(Recipe.fromDocument(doc));
+                        } catch (RuntimeException ex) {
+                            report.addFailure(chunk.ordinals()[i], ex.getMessage());
+                        }
+                    }
+                    importBatch(batch, chunk.documents().size(), seen, report, batchListener);
+                }
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                ImportPipeline.ChunkSource<RecipeDumpReaders.TextChunk> source =
+                        RecipeDumpReaders.jsonLines(reader, options.batchSize());
+                RecipeDumpReaders.TextChunk chunk;
+                while ((chunk = source.nextChunk()) != null) {
+                    List<Recipe> batch = new ArrayList<>(chunk.lines().size());
+                    for (int i = 0; i < chunk.lines().size(); i++) {
+                        try {
+                            batch.add(Recipe.fromDocument(Document.parse(chunk.lines().get(i).trim())));
+                        } catch (RuntimeException ex) {
+                            report.addFailure(chunk.lineNumbers()[i], ex.getMessage());
+                        }
+                    }
+                    importBatch(batch, chunk.lines().size(), seen, report, batchListener);
+                }
+            }
+        }
+        report.setElapsedNanos(System.nanoTime() - started);
+        return report;
+    }
+
+    // A repeated id keeps its last line, within a batch and across batches, as the Mongo import does.
+    private void importBatch(List<Recipe> batch, int documents, ImportPipeline.SeenIds seen, ImportReport report,
+                             Consumer<ImportReport.BatchResult> batchListener) {
+        Map<Object, Recipe> unique = new LinkedHashMap<>();
+        for (Recipe recipe : batch) {
+            Object key = recipe.getId() == null ? new Object() : recipe.getId();
+            if (recipe.getId() != null && !seen.add(recipe.getId())) {
+                report.addDuplicate();
+            }
+            unique.remove(key);
+            unique.put(key, recipe);
+        }
+        List<Recipe> recipes = new ArrayList<>(unique.values());
+        int failed = documents - batch.size();
+        int existing;
+        synchronized (this) {
+            existing = (int) recipes.stream().filter(recipe -> summaries.containsKey(recipe.getId())).count();
+            saveAll(recipes);
+        }
+        batchListener.accept(report.addBatch(recipes.size() + failed, recipes.size() - existing, existing, existing,
+                failed));
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            log.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (log.size() < COMPACTION_MIN_BYTES || log.garbageRatio() < COMPACTION_GARBAGE_RATIO) {
+            return;
+        }
+        try {
+            log.compact();
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Unable to compact the recipe log: " + ex.getMessage());
+        }
+    }
+
+    private synchronized void index(Recipe recipe) {
+        RecipeSummary summary = RecipeSummary.of(recipe);
+        RecipeSummary previous = summaries.put(summary.getId(), summary);
+        if (previous != null) {
+            byName.remove(previous);
+            byRevision.remove(previous);
+            for (ObjectId target : previous.getRelatedRecipeIds()) {
+                Set<ObjectId> sources = backlinks.get(target);
+                if (sources != null && sources.remove(summary.getId()) && sources.isEmpty()) {
+                    backlinks.remove(target);
+                }
+            }
+        }
+        byName.add(summary);
+        byRevision.add(summary);
+        for (ObjectId target : summary.getRelatedRecipeIds()) {
+            if (!target.equals(summary.getId())) {
+                backlinks.computeIfAbsent(target, ignored -> new HashSet<>()).add(summary.getId());
+            }
+        }
+        revision = Math.max(revision, recipe.getRevision());
+    }
+
+    private synchronized List<ObjectId> matching(Predicate<RecipeSummary> filter) {
+        return byName.stream().filter(filter).map(RecipeSummary::getId).toList();
+    }
+
+    private List<Recipe> readAll(List<ObjectId> ids) {
+        List<Recipe> results = new ArrayList<>(ids.size());
+        try {
+            for (ObjectId id : ids) {
+                log.read(id).ifPresent(results::add);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return results;
+    }
+
+    private static List<String> clean(List<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .map(String::trim)
+                .toList();
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
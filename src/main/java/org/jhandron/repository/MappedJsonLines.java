@@ -0,0 +1,145 @@
+package org.jhandron.repository;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Positions are byte offsets while the import runs and are turned into line numbers afterwards.
+final class MappedJsonLines {
+    static final int DEFAULT_REGION_SIZE = 8 * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int regionSize;
+    private final int batchSize;
+
+    MappedJsonLines(FileChannel channel, int regionSize, int batchSize) {
+        this.channel = channel;
+        this.regionSize = regionSize;
+        this.batchSize = batchSize;
+    }
+
+    ImportPipeline.ChunkSource<Region> regions() throws IOException {
+        long size = channel.size();
+        return new ImportPipeline.ChunkSource<>() {
+            private long position;
+
+            @Override
+            public Region nextChunk() throws IOException {
+                if (position >= size) {
+                    return null;
+                }
+                Region region = mapRegion(position, size);
+                position += region.buffer().limit();
+                return region;
+            }
+        };
+    }
+
+    // Maps from start up to the last newline inside the window; a line longer than the window grows it.
+    private Region mapRegion(long start, long size) throws IOException {
+        long window = regionSize;
+        while (true) {
+            long length = Math.min(window, size - start);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            if (start + length == size) {
+                return new Region(start, buffer);
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return new Region(start, buffer.slice(0, i + 1));
+                }
+            }
+            if (window >= Integer.MAX_VALUE) {
+                throw new IOException("Line starting near byte " + start + " is too long to import");
+            }
+            window = Math.min(window * 2, Integer.MAX_VALUE);
+        }
+    }
+
+    List<ImportPipeline.DecodedBatch<Document>> decode(Region region, ImportReport report) {
+        ByteBuffer buffer = region.buffer();
+        List<ImportPipeline.DecodedBatch<Document>> batches = new ArrayList<>();
+        long[] positions = new long[batchSize];
+        List<ReplaceOneModel<Document>> models = new ArrayList<>(batchSize);
+        byte[] line = new byte[256];
+        int start = 0;
+        int limit = buffer.limit();
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int length = end - start;
+            if (length > line.length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            buffer.get(start, line, 0, length);
+            long offset = region.offset() + start;
+            start = end + 1;
+            String json = new String(line, 0, length, StandardCharsets.UTF_8);
+            if (json.isBlank()) {
+                continue;
+            }
+            try {
+                models.add(RecipeDumpReaders.parseJsonUpsert(json));
+                positions[models.size() - 1] = offset;
+            } catch (RuntimeException ex) {
+                report.addFailure(offset, ex.getMessage());
+            }
+            if (models.size() == batchSize) {
+                batches.add(new ImportPipeline.DecodedBatch<>(positions, models));
+                positions = new long[batchSize];
+                models = new ArrayList<>(batchSize);
+            }
+        }
+        if (!models.isEmpty()) {
+            batches.add(new ImportPipeline.DecodedBatch<>(positions, models));
+        }
+        return batches;
+    }
+
+    // Failures are rare, so a single sequential newline count is cheaper than tracking lines per region.
+    void renumberFailures(ImportReport report) throws IOException {
+        long[] offsets = report.getFailurePositions();
+        if (offsets.length == 0) {
+            return;
+        }
+        Arrays.sort(offsets);
+        Map<Long, Long> lineNumbers = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = 0;
+        long line = 1;
+        int next = 0;
+        while (next < offsets.length) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && next < offsets.length; i++) {
+                while (next < offsets.length && offsets[next] == position + i) {
+                    lineNumbers.put(offsets[next++], line);
+                }
+                if (buffer.get(i) == '\n') {
+                    line++;
+                }
+            }
+            position += read;
+        }
+        report.renumberFailures(lineNumbers);
+    }
+
+    record Region(long offset, ByteBuffer buffer) {
+    }
+}
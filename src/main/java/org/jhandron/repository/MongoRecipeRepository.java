@@ -0,0 +1,557 @@
+package org.jhandron.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.Field;
+import com.mongodb.client.model.CollationStrength;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.GraphLookupOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import org.jhandron.db.MongoConnectionManager;
+import org.jhandron.model.FacetCount;
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
+import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
+import org.jhandron.model.TermDictionary;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.bson.json.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class MongoRecipeRepository implements RecipeRepository {
+    private static final int EXPORT_CURSOR_BATCH_SIZE = 1000;
+    private static final String HOPS_FIELD = "hops";
+    private static final String NORMALIZED_INGREDIENTS_FIELD = "normalizedIngredients";
+    private static final String MISSING_FIELD = "missing";
+    private static final String COVERED_FIELD = "covered";
+    private static final String COUNT_FIELD = "count";
+    private static final String TAGS_FACET = "tags";
+    private static final String INGREDIENTS_FACET = "ingredients";
+    private static final Collation NAME_COLLATION = Collation.builder()
+            .locale("en")
+            .collationStrength(CollationStrength.SECONDARY)
+            .build();
+
+    private final MongoCollection<Document> collection;
+    private final MongoCollection<RawBsonDocument> rawCollection;
+    private final MongoCollection<Recipe> recipes;
+    private final MongoCollection<RecipeSummary> summaries;
+    private final RecipeRevisions revisions;
+
+    public MongoRecipeRepository(boolean p_testEnvironment) {
+        this.collection = MongoConnectionManager.getInstance().getRecipeCollection(p_testEnvironment);
+        this.rawCollection = collection.withDocumentClass(RawBsonDocument.class);
+        this.recipes = MongoConnectionManager.getInstance().getTypedRecipeCollection(p_testEnvironment);
+        this.summaries = MongoConnectionManager.getInstance().getRecipeSummaryCollection(p_testEnvironment);
+        this.revisions = new RecipeRevisions(
+                MongoConnectionManager.getInstance().getRevisionCollection(p_testEnvironment));
+    }
+
+    @Override
+    public void ensureIndexes() {
+        collection.createIndex(Indexes.compoundIndex(
+                        Indexes.text("name"),
+                        Indexes.text("ingredients"),
+                        Indexes.text("instructions")),
+                new IndexOptions().name("recipe_text"));
+        collection.createIndex(Indexes.ascending("tags"), new IndexOptions().name("recipe_tags"));
+        collection.createIndex(Indexes.ascending("name", "_id"),
+                new IndexOptions().name("recipe_name_id").collation(NAME_COLLATION));
+        collection.createIndex(Indexes.ascending(RevisionStamp.REVISION), new IndexOptions().name("recipe_revision"));
+        collection.createIndex(Indexes.ascending("relatedRecipes"), new IndexOptions().name("recipe_related"));
+    }
+
+    @Override
+    public String storageId() {
+        return "mongo:" + collection.getNamespace().getFullName();
+    }
+
+    @Override
+    public long currentRevision() {
+        return revisions.stable();
+    }
+
+    @Override
+    public Set<ObjectId> listIds() {
+        Set<ObjectId> ids = new HashSet<>();
+        for (Document doc : collection.find().projection(Projections.include("_id")).batchSize(EXPORT_CURSOR_BATCH_SIZE)) {
+            if (doc.get("_id") instanceof ObjectId id) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public List<RecipeSummary> changesSince(long revision) {
+        // Writes still running below the newest revision could otherwise land behind the caller's new mark.
+        long stable = revisions.stable();
+        return summaries.find(Filters.and(Filters.gt(RevisionStamp.REVISION, revision),
+                        Filters.lte(RevisionStamp.REVISION, stable)))
+                .projection(Projections.include(RecipeSummary.FIELDS))
+                .sort(Sorts.ascending(RevisionStamp.REVISION))
+                .into(new ArrayList<>());
+    }
+
+    @Override
+    public List<Recipe> listAll() {
+        return recipes.find().collation(NAME_COLLATION).sort(Sorts.ascending("name")).into(new ArrayList<>());
+    }
+
+    @Override
+    public List<RecipeSummary> listSummaryPage(RecipeSummary after, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        Bson filter = after == null ? new Document() : keysetAfter(after.getName(), after.getId());
+        return summaries.find(filter)
+                .projection(Projections.include(RecipeSummary.FIELDS))
+                .collation(NAME_COLLATION)
+                .sort(Sorts.ascending("name", "_id"))
+                .limit(batchSize)
+                .batchSize(batchSize)
+                .into(new ArrayList<>(batchSize));
+    }
+
+    @Override
+    public List<Recipe> listPage(RecipeSummary after, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        Bson filter = after == null ? new Document() : keysetAfter(after.getName(), after.getId());
+        return recipes.find(filter)
+                .collation(NAME_COLLATION)
+                .sort(Sorts.ascending("name", "_id"))
+                .limit(batchSize)
+                .batchSize(batchSize)
+                .into(new ArrayList<>(batchSize));
+    }
+
+    private static Bson keysetAfter(String name, ObjectId id) {
+        if (name == null) {
+            return Filters.or(
+                    Filters.and(Filters.eq("name", null), Filters.gt("_id", id)),
+                    Filters.ne("name", null));
+        }
+        return Filters.or(
+                Filters.gt("name", name),
+                Filters.and(Filters.eq("name", name), Filters.gt("_id", id)));
+    }
+
+    @Override
+    public Optional<Recipe> findById(ObjectId id) {
+        return Optional.ofNullable(recipes.find(Filters.eq("_id", id)).first());
+    }
+
+    @Override
+    public List<Recipe> findByIds(Collection<ObjectId> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<ObjectId> distinct = new LinkedHashSet<>(ids);
+        Map<ObjectId, Recipe> found = new HashMap<>(distinct.size() * 2);
+        for (Recipe recipe : recipes.find(Filters.in("_id", distinct)).batchSize(distinct.size())) {
+            found.put(recipe.getId(), recipe);
+        }
+        List<Recipe> ordered = new ArrayList<>(found.size());
+        for (ObjectId id : distinct) {
+            Recipe recipe = found.get(id);
+            if (recipe != null) {
+                ordered.add(recipe);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public List<Recipe> search(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                               SearchMode mode) {
+        return buildSearch(recipes, nameQuery, tags, ingredientKeywords, mode).into(new ArrayList<>());
+    }
+
+    public Document explainSearch(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                                  SearchMode mode) {
+        return buildSearch(collection, nameQuery, tags, ingredientKeywords, mode).explain();
+    }
+
+    private <T> FindIterable<T> buildSearch(MongoCollection<T> target, String nameQuery, List<String> tags,
+                                            List<String> ingredientKeywords, SearchMode mode) {
+        return target.find(searchFilter(nameQuery, tags, ingredientKeywords, mode))
+                .collation(NAME_COLLATION)
+                .sort(Sorts.ascending("name"));
+    }
+
+    private Bson searchFilter(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                              SearchMode mode) {
+        List<Bson> filters = new ArrayList<>();
+        if (nameQuery != null && !nameQuery.isBlank()) {
+            String trimmed = nameQuery.trim();
+            if (mode == SearchMode.INDEXED) {
+                // U+FFFF sorts after every other character, so this is a case-insensitive prefix range on recipe_name.
+                filters.add(Filters.gte("name", trimmed));
+                filters.add(Filters.lt("name", trimmed + "\uffff"));
+            } else {
+                filters.add(Filters.regex("name", Pattern.quote(trimmed), "i"));
+            }
+        }
+        List<String> cleanedTags = clean(tags);
+        if (!cleanedTags.isEmpty()) {
+            filters.add(Filters.all("tags", cleanedTags));
+        }
+        List<String> cleanedKeywords = clean(ingredientKeywords);
+        if (!cleanedKeywords.isEmpty()) {
+            if (mode == SearchMode.INDEXED) {
+                filters.add(Filters.text(String.join(" ", cleanedKeywords)));
+            } else {
+                filters.add(Filters.or(cleanedKeywords.stream()
+                        .map(keyword -> Filters.regex("ingredients", Pattern.quote(keyword), "i"))
+                        .collect(Collectors.toList())));
+            }
+        }
+
+        return filters.isEmpty() ? new Document() : Filters.and(filters);
+    }
+
+    // Grouping twice makes a value repeated within a recipe count once.
+    @Override
+    public RecipeFacets facetCounts(String nameQuery, List<String> tags, List<String> ingredientKeywords,
+                                    SearchMode mode, int limit) {
+        if (limit <= 0) {
+            return RecipeFacets.EMPTY;
+        }
+        List<Bson> pipeline = List.of(
+                Aggregates.match(searchFilter(nameQuery, tags, ingredientKeywords, mode)),
+                Aggregates.facet(
+                        new Facet(TAGS_FACET, facetPipeline("tags", limit)),
+                        new Facet(INGREDIENTS_FACET, facetPipeline("ingredients", limit))));
+        Document result = collection.aggregate(pipeline).collation(NAME_COLLATION).first();
+        if (result == null) {
+            return RecipeFacets.EMPTY;
+        }
+        return new RecipeFacets(facetCounts(result, TAGS_FACET), facetCounts(result, INGREDIENTS_FACET));
+    }
+
+    private static List<Bson> facetPipeline(String field, int limit) {
+        Document value = new Document("$toLower", new Document("$trim", new Document("input", "$" + field)));
+        return List.of(
+                Aggregates.unwind("$" + field),
+                Aggregates.group(new Document("recipe", "$_id").append("value", value)),
+                Aggregates.group("$_id.value", Accumulators.sum(COUNT_FIELD, 1)),
+                Aggregates.match(Filters.ne("_id", "")),
+                Aggregates.sort(Sorts.orderBy(Sorts.descending(COUNT_FIELD), Sorts.ascending("_id"))),
+                Aggregates.limit(limit));
+    }
+
+    private static List<FacetCount> facetCounts(Document result, String facet) {
+        List<FacetCount> counts = new ArrayList<>();
+        for (Document entry : result.getList(facet, Document.class, List.of())) {
+            counts.add(new FacetCount(entry.getString("_id"), entry.get(COUNT_FIELD, Number.class).intValue()));
+        }
+        return counts;
+    }
+
+    @Override
+    public List<RecipeHop> findWithinHops(ObjectId id, int maxHops, LinkDirection direction) {
+        Objects.requireNonNull(direction, "direction cannot be null");
+        if (id == null || maxHops <= 0) {
+            return List.of();
+        }
+        if (direction == LinkDirection.BOTH) {
+            return walkBothDirections(id, maxHops);
+        }
+        // Incoming links are followed by matching _id against other recipes' relatedRecipes (index recipe_related).
+        boolean incoming = direction == LinkDirection.INCOMING;
+        List<String> fields = new ArrayList<>(RecipeSummary.FIELDS);
+        fields.add(HOPS_FIELD);
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.eq("_id", id)),
+                Aggregates.graphLookup(collection.getNamespace().getCollectionName(),
+                        incoming ? "$_id" : "$relatedRecipes",
+                        incoming ? "_id" : "relatedRecipes",
+                        incoming ? "relatedRecipes" : "_id",
+                        "reached",
+                        new GraphLookupOptions().maxDepth(maxHops - 1).depthField(HOPS_FIELD)),
+                Aggregates.unwind("$reached"),
+                Aggregates.replaceRoot("$reached"),
+                Aggregates.match(Filters.ne("_id", id)),
+                Aggregates.project(Projections.include(fields)),
+                Aggregates.sort(Sorts.ascending(HOPS_FIELD, "name", "_id")));
+        List<RecipeHop> hops = new ArrayList<>();
+        for (Document doc : collection.aggregate(pipeline).collation(NAME_COLLATION)) {
+            hops.add(new RecipeHop(RecipeSummary.fromDocument(doc), doc.get(HOPS_FIELD, Number.class).intValue() + 1));
+        }
+        return hops;
+    }
+
+    // $toLower only folds ASCII, so accented ingredients must match the pantry's case exactly.
+    @Override
+    public List<PantryMatch> findByPantry(Collection<String> pantry, int maxMissing, int limit) {
+        Set<String> have = new LinkedHashSet<>();
+        for (String ingredient : pantry) {
+            have.add(TermDictionary.normalize(ingredient));
+        }
+        have.remove("");
+        if (have.isEmpty() || maxMissing < 0 || limit <= 0) {
+            return List.of();
+        }
+        // Blank ingredients are never counted as missing.
+        List<String> haveOrBlank = new ArrayList<>(have);
+        haveOrBlank.add("");
+        Document normalized = new Document("$map", new Document("input",
+                new Document("$ifNull", List.of("$ingredients", List.of())))
+                .append("as", "ingredient")
+                .append("in", new Document("$toLower", new Document("$trim", new Document("input", "$$ingredient")))));
+        String normalizedField = "$" + NORMALIZED_INGREDIENTS_FIELD;
+        List<String> fields = new ArrayList<>(RecipeSummary.FIELDS);
+        fields.add(NORMALIZED_INGREDIENTS_FIELD);
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.exists("ingredients.0")),
+                Aggregates.addFields(new Field<>(NORMALIZED_INGREDIENTS_FIELD, normalized)),
+                Aggregates.addFields(
+                        new Field<>(MISSING_FIELD, new Document("$size",
+                                new Document("$setDifference", List.of(normalizedField, haveOrBlank)))),
+                        new Field<>(COVERED_FIELD, new Document("$size",
+                                new Document("$setIntersection", List.of(normalizedField, List.copyOf(have)))))),
+                Aggregates.match(Filters.and(Filters.gte(COVERED_FIELD, 1), Filters.lte(MISSING_FIELD, maxMissing))),
+                Aggregates.sort(Sorts.ascending(MISSING_FIELD, "name", "_id")),
+                Aggregates.limit(limit),
+                Aggregates.project(Projections.include(fields)));
+        List<PantryMatch> matches = new ArrayList<>();
+        for (Document doc : collection.aggregate(pipeline).collation(NAME_COLLATION)) {
+            RecipeSummary recipe = RecipeSummary.fromDocument(doc);
+            List<String> normalizedIngredients = doc.getList(NORMALIZED_INGREDIENTS_FIELD, String.class);
+            Set<String> listed = new HashSet<>(haveOrBlank);
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < normalizedIngredients.size(); i++) {
+                if (listed.add(normalizedIngredients.get(i))) {
+                    missing.add(recipe.getIngredients().get(i).trim());
+                }
+            }
+            matches.add(new PantryMatch(recipe, missing));
+        }
+        return matches;
+    }
+
+    // $graphLookup follows one field in one direction, so an undirected walk goes level by level instead.
+    private List<RecipeHop> walkBothDirections(ObjectId id, int maxHops) {
+        RecipeSummary start = summaries.find(Filters.eq("_id", id))
+                .projection(Projections.include(RecipeSummary.FIELDS))
+                .first();
+        if (start == null) {
+            return List.of();
+        }
+        Set<ObjectId> seen = new HashSet<>(List.of(id));
+        List<RecipeSummary> frontier = List.of(start);
+        List<RecipeHop> hops = new ArrayList<>();
+        for (int hop = 1; hop <= maxHops && !frontier.isEmpty(); hop++) {
+            List<ObjectId> frontierIds = frontier.stream().map(RecipeSummary::getId).toList();
+            Set<ObjectId> linked = new HashSet<>();
+            frontier.forEach(recipe -> linked.addAll(recipe.getRelatedRecipeIds()));
+            List<RecipeSummary> next = new ArrayList<>();
+            for (RecipeSummary recipe : summaries.find(Filters.or(
+                            Filters.in("_id", linked),
+                            Filters.in("relatedRecipes", frontierIds)))
+                    .projection(Projections.include(RecipeSummary.FIELDS))
+                    .collation(NAME_COLLATION)
+                    .sort(Sorts.ascending("name", "_id"))) {
+                if (seen.add(recipe.getId())) {
+                    next.add(recipe);
+                    hops.add(new RecipeHop(recipe, hop));
+                }
+            }
+            frontier = next;
+        }
+        return hops;
+    }
+
+    private static List<String> clean(List<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .map(String::trim)
+                .toList();
+    }
+
+    @Override
+    public Recipe save(Recipe recipe) {
+        Objects.requireNonNull(recipe, "recipe cannot be null");
+        if (recipe.getId() == null) {
+            ObjectId newId = new ObjectId();
+            recipe.setId(newId);
+        }
+        RevisionStamp stamp = revisions.next();
+        recipe.setRevision(stamp.revision());
+        recipe.setUpdatedAt(stamp.updatedAt());
+        try {
+            recipes.replaceOne(Filters.eq("_id", recipe.getId()), recipe, new ReplaceOptions().upsert(true));
+        } finally {
+            revisions.release(stamp);
+        }
+        return recipe;
+    }
+
+    @Override
+    public Map<ObjectId, String> saveAll(List<Recipe> batch) {
+        RevisionStamp stamp = revisions.next();
+        List<ReplaceOneModel<Recipe>> models = new ArrayList<>(batch.size());
+        for (Recipe recipe : batch) {
+            if (recipe.getId() == null) {
+                recipe.setId(new ObjectId());
+            }
+            recipe.setRevision(stamp.revision());
+            recipe.setUpdatedAt(stamp.updatedAt());
+            models.add(new ReplaceOneModel<>(Filters.eq("_id", recipe.getId()), recipe,
+                    new ReplaceOptions().upsert(true)));
+        }
+        Map<ObjectId, String> rejected = new HashMap<>();
+        try {
+            recipes.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException ex) {
+            for (BulkWriteError error : ex.getWriteErrors()) {
+                rejected.put(batch.get(error.getIndex()).getId(), error.getMessage());
+            }
+        } finally {
+            revisions.release(stamp);
+        }
+        return rejected;
+    }
+
+    @Override
+    public long exportAll(Path path, RecipeDumpFormat format) throws IOException {
+        return streamExport(path, new Document(), format);
+    }
+
+    @Override
+    public long exportByIds(Path path, Collection<ObjectId> ids, RecipeDumpFormat format) throws IOException {
+        Objects.requireNonNull(ids, "ids cannot be null");
+        return streamExport(path, Filters.in("_id", ids), format);
+    }
+
+    private long streamExport(Path path, Bson filter, RecipeDumpFormat format) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        Objects.requireNonNull(format, "format cannot be null");
+        long count = 0;
+        try (OutputStream out = format.openOutput(path)) {
+            // Revisions are local bookkeeping; an import stamps fresh ones.
+            Iterable<RawBsonDocument> cursor = rawCollection.find(filter)
+                    .projection(Projections.exclude(RevisionStamp.REVISION, RevisionStamp.UPDATED_AT))
+                    .batchSize(EXPORT_CURSOR_BATCH_SIZE);
+            if (format.isBinary()) {
+                // A BSON document already starts with its own length, so the dump is just the raw bytes back to back.
+                WritableByteChannel channel = Channels.newChannel(out);
+                for (RawBsonDocument doc : cursor) {
+                    channel.write(doc.getByteBuffer().asNIO());
+                    count++;
+                }
+            } else {
+                RawBsonDocumentCodec codec = new RawBsonDocumentCodec();
+                EncoderContext context = EncoderContext.builder().build();
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                // Raw documents are piped from their wire bytes straight into the JSON writer, one at a time.
+                for (RawBsonDocument doc : cursor) {
+                    codec.encode(new JsonWriter(writer, EXPORT_JSON_SETTINGS), doc, context);
+                    writer.write(System.lineSeparator());
+                    count++;
+                }
+                writer.flush();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public ImportReport importFromFile(Path path, RecipeDumpFormat format, ImportOptions options,
+                                       Consumer<ImportReport.BatchResult> batchListener) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        Objects.requireNonNull(format, "format cannot be null");
+        Objects.requireNonNull(options, "options cannot be null");
+        Objects.requireNonNull(batchListener, "batchListener cannot be null");
+        if (format == RecipeDumpFormat.JSON_LINES && options.memoryMapped()) {
+            return importMapped(path, options, batchListener);
+        }
+        long inputBytes = Files.size(path);
+        try (InputStream in = format.openInput(path)) {
+            if (format.isBinary()) {
+                ImportReport report = new ImportReport("Document");
+                report.setInputBytes(inputBytes);
+                return new ImportPipeline<RecipeDumpReaders.BinaryChunk, RawBsonDocument>(
+                        rawCollection, revisions, (doc, stamp) -> stamp.appendTo(doc), options, report, batchListener)
+                        .run(RecipeDumpReaders.bsonDocuments(in, options.batchSize()), RecipeDumpReaders::decodeBson);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            ImportReport report = new ImportReport("Line");
+            report.setInputBytes(inputBytes);
+            return new ImportPipeline<RecipeDumpReaders.TextChunk, Document>(
+                    collection, revisions, MongoRecipeRepository::stampDocument, options, report, batchListener)
+                    .run(RecipeDumpReaders.jsonLines(reader, options.batchSize()), RecipeDumpReaders::decodeJson);
+        }
+    }
+
+    private ImportReport importMapped(Path path, ImportOptions options,
+                                      Consumer<ImportReport.BatchResult> batchListener) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedJsonLines lines = new MappedJsonLines(channel, MappedJsonLines.DEFAULT_REGION_SIZE,
+                    options.batchSize());
+            ImportReport report = new ImportReport("Line");
+            report.setInputBytes(channel.size());
+            new ImportPipeline<MappedJsonLines.Region, Document>(collection, revisions,
+                    MongoRecipeRepository::stampDocument, options, report, batchListener)
+                    .run(lines.regions(), lines::decode);
+            lines.renumberFailures(report);
+            return report;
+        }
+    }
+
+    private static Document stampDocument(Document doc, RevisionStamp stamp) {
+        stamp.applyTo(doc);
+        return doc;
+    }
+}
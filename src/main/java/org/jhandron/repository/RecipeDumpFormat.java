@@ -0,0 +1,120 @@
+package org.jhandron.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public enum RecipeDumpFormat {
+    JSON_LINES("JSON Lines", "json", false, false),
+    GZIP_JSON_LINES("Compressed JSON Lines", "json.gz", true, false),
+    BSON("BSON dump", "bson", false, true),
+    GZIP_BSON("Compressed BSON dump", "bson.gz", true, true);
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final long MAX_BSON_DOCUMENT_SIZE = 16 * 1024 * 1024;
+
+    private final String description;
+    private final String extension;
+    private final boolean compressed;
+    private final boolean binary;
+
+    RecipeDumpFormat(String description, String extension, boolean compressed, boolean binary) {
+        this.description = description;
+        this.extension = extension;
+        this.compressed = compressed;
+        this.binary = binary;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public static RecipeDumpFormat detect(Path path) throws IOException {
+        boolean gzip;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            int first = in.read();
+            int second = in.read();
+            gzip = first >= 0 && second >= 0 && (first | (second << 8)) == GZIP_MAGIC;
+        }
+        try (InputStream in = open(path, gzip)) {
+            boolean binary = startsWithBsonDocument(in, gzip ? MAX_BSON_DOCUMENT_SIZE : Files.size(path));
+            if (gzip) {
+                return binary ? GZIP_BSON : GZIP_JSON_LINES;
+            }
+            return binary ? BSON : JSON_LINES;
+        }
+    }
+
+    // A BSON document starts with its little-endian int32 length and ends with a zero byte at that length.
+    // Anything else is read as JSON Lines.
+    private static boolean startsWithBsonDocument(InputStream in, long maxLength) throws IOException {
+        byte[] header = in.readNBytes(5);
+        if (header.length < 5) {
+            return false;
+        }
+        long length = (header[0] & 0xff) | (header[1] & 0xff) << 8 | (header[2] & 0xff) << 16
+                | (long) (header[3] & 0xff) << 24;
+        if (length < 5 || length > Math.min(maxLength, MAX_BSON_DOCUMENT_SIZE)) {
+            return false;
+        }
+        if (length == 5) {
+            return header[4] == 0;
+        }
+        try {
+            in.skipNBytes(length - 6);
+        } catch (EOFException ex) {
+            return false;
+        }
+        return in.read() == 0;
+    }
+
+    InputStream openInput(Path path) throws IOException {
+        return open(path, compressed);
+    }
+
+    OutputStream openOutput(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if (compressed) {
+            return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    private static InputStream open(Path path, boolean gzip) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (!gzip) {
+            return new BufferedInputStream(in, BUFFER_SIZE);
+        }
+        try {
+            return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description + " (*." + extension + ")";
+    }
+}
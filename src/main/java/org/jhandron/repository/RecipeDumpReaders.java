@@ -0,0 +1,169 @@
+package org.jhandron.repository;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+final class RecipeDumpReaders {
+    private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024 + 16 * 1024;
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private RecipeDumpReaders() {
+    }
+
+    static ImportPipeline.ChunkSource<TextChunk> jsonLines(BufferedReader reader, int chunkSize) {
+        return new JsonLineSource(reader, chunkSize);
+    }
+
+    static List<ImportPipeline.DecodedBatch<Document>> decodeJson(TextChunk chunk, ImportReport report) {
+        long[] positions = new long[chunk.lines().size()];
+        List<ReplaceOneModel<Document>> models = new ArrayList<>(chunk.lines().size());
+        for (int i = 0; i < chunk.lines().size(); i++) {
+            long lineNumber = chunk.lineNumbers()[i];
+            try {
+                models.add(parseJsonUpsert(chunk.lines().get(i)));
+                positions[models.size() - 1] = lineNumber;
+            } catch (RuntimeException ex) {
+                report.addFailure(lineNumber, ex.getMessage());
+            }
+        }
+        return List.of(new ImportPipeline.DecodedBatch<>(positions, models));
+    }
+
+    // The pipeline stamps revisions when it writes each batch.
+    static ReplaceOneModel<Document> parseJsonUpsert(String json) {
+        Document doc = Document.parse(json.trim());
+        Object id = doc.get("_id");
+        if (id == null) {
+            id = new ObjectId();
+            doc.put("_id", id);
+        }
+        return new ReplaceOneModel<>(Filters.eq("_id", id), doc, UPSERT);
+    }
+
+    static ImportPipeline.ChunkSource<BinaryChunk> bsonDocuments(InputStream in, int chunkSize) {
+        return new BsonDocumentSource(in, chunkSize);
+    }
+
+    static List<ImportPipeline.DecodedBatch<RawBsonDocument>> decodeBson(BinaryChunk chunk, ImportReport report) {
+        long[] positions = new long[chunk.documents().size()];
+        List<ReplaceOneModel<RawBsonDocument>> models = new ArrayList<>(chunk.documents().size());
+        for (int i = 0; i < chunk.documents().size(); i++) {
+            long ordinal = chunk.ordinals()[i];
+            try {
+                RawBsonDocument doc = new RawBsonDocument(chunk.documents().get(i));
+                BsonValue id = doc.get("_id");
+                // The writer appends the revision fields, so they must not be in the document already.
+                if (id == null || doc.containsKey(RevisionStamp.REVISION) || doc.containsKey(RevisionStamp.UPDATED_AT)) {
+                    BsonDocument copy = doc.decode(new BsonDocumentCodec());
+                    if (id == null) {
+                        id = new BsonObjectId(new ObjectId());
+                        copy.put("_id", id);
+                    }
+                    copy.remove(RevisionStamp.REVISION);
+                    copy.remove(RevisionStamp.UPDATED_AT);
+                    doc = new RawBsonDocument(copy, new BsonDocumentCodec());
+                }
+                positions[models.size()] = ordinal;
+                models.add(new ReplaceOneModel<>(Filters.eq("_id", id), doc, UPSERT));
+            } catch (RuntimeException ex) {
+                report.addFailure(ordinal, ex.getMessage());
+            }
+        }
+        return List.of(new ImportPipeline.DecodedBatch<>(positions, models));
+    }
+
+    record TextChunk(long[] lineNumbers, List<String> lines) {
+    }
+
+    record BinaryChunk(long[] ordinals, List<byte[]> documents) {
+    }
+
+    private static final class JsonLineSource implements ImportPipeline.ChunkSource<TextChunk> {
+        private final BufferedReader reader;
+        private final int chunkSize;
+        private long lineNumber;
+
+        private JsonLineSource(BufferedReader reader, int chunkSize) {
+            this.reader = reader;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public TextChunk nextChunk() throws IOException {
+            long[] lineNumbers = new long[chunkSize];
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    lineNumbers[lines.size()] = lineNumber;
+                    lines.add(line);
+                }
+            }
+            return lines.isEmpty() ? null : new TextChunk(lineNumbers, lines);
+        }
+    }
+
+    private static final class BsonDocumentSource implements ImportPipeline.ChunkSource<BinaryChunk> {
+        private final InputStream in;
+        private final int chunkSize;
+        private final byte[] header = new byte[4];
+        private long ordinal;
+
+        private BsonDocumentSource(InputStream in, int chunkSize) {
+            this.in = in;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public BinaryChunk nextChunk() throws IOException {
+            long[] ordinals = new long[chunkSize];
+            List<byte[]> documents = new ArrayList<>(chunkSize);
+            while (documents.size() < chunkSize) {
+                byte[] document = nextDocument();
+                if (document == null) {
+                    break;
+                }
+                ordinals[documents.size()] = ordinal;
+                documents.add(document);
+            }
+            return documents.isEmpty() ? null : new BinaryChunk(ordinals, documents);
+        }
+
+        private byte[] nextDocument() throws IOException {
+            int read = in.readNBytes(header, 0, header.length);
+            if (read == 0) {
+                return null;
+            }
+            ordinal++;
+            if (read < header.length) {
+                throw new EOFException("Truncated length prefix for BSON document " + ordinal);
+            }
+            int length = (header[0] & 0xff) | (header[1] & 0xff) << 8 | (header[2] & 0xff) << 16 | header[3] << 24;
+            if (length < 5 || length > MAX_DOCUMENT_SIZE) {
+                throw new IOException("Invalid length " + length + " for BSON document " + ordinal);
+            }
+            byte[] document = new byte[length];
+            System.arraycopy(header, 0, document, 0, header.length);
+            if (in.readNBytes(document, header.length, length - header.length) < length - header.length) {
+                throw new EOFException("Truncated BSON document " + ordinal);
+            }
+            return document;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package org.jhandron.repository;
+
+import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeCodec;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Each record is a length, a CRC32 and the recipe as BSON.
+final class RecipeLog implements Closeable {
+    private static final int MAGIC = 0x524e4c47;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path path;
+    private final boolean syncWrites;
+    private final RecipeCodec codec = new RecipeCodec();
+    private final Map<ObjectId, Entry> index = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+    private volatile FileChannel channel;
+    private boolean closed;
+    private long size;
+    private long liveBytes;
+
+    private RecipeLog(Path path, boolean syncWrites) {
+        this.path = path;
+        this.syncWrites = syncWrites;
+    }
+
+    static RecipeLog open(Path path, boolean syncWrites, Consumer<Recipe> replayed) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        // A leftover from a compaction that never reached its rename; the log itself is still complete.
+        Files.deleteIfExists(compactionPath(path));
+        RecipeLog log = new RecipeLog(path, syncWrites);
+        log.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            log.replay(replayed);
+        } catch (IOException | RuntimeException ex) {
+            log.channel.close();
+            throw ex;
+        }
+        return log;
+    }
+
+    private void replay(Consumer<Recipe> replayed) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < FILE_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+            channel.truncate(0);
+            writeFully(channel, header, 0);
+            size = FILE_HEADER_SIZE;
+            return;
+        }
+        ByteBuffer header = readFully(channel, 0, FILE_HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException(path + " is not a recipe log this version can read");
+        }
+        long position = FILE_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            ByteBuffer recordHeader = readFully(channel, position, RECORD_HEADER_SIZE);
+            int length = recordHeader.getInt();
+            int checksum = recordHeader.getInt();
+            if (length < 5 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > fileSize) {
+                break;
+            }
+            byte[] payload = readFully(channel, position + RECORD_HEADER_SIZE, length).array();
+            if (crc(payload) != checksum) {
+                break;
+            }
+            Recipe recipe = decode(payload);
+            Entry previous = index.put(recipe.getId(), new Entry(position, length));
+            if (previous != null) {
+                liveBytes -= previous.recordSize();
+            }
+            liveBytes += RECORD_HEADER_SIZE + length;
+            replayed.accept(recipe);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < fileSize) {
+            System.err.println("Discarding " + (fileSize - position) + " bytes of incomplete records at the end of "
+                    + path);
+            channel.truncate(position);
+            channel.force(true);
+        }
+        size = position;
+    }
+
+    void append(List<Recipe> recipes) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(recipes.size());
+        int total = 0;
+        for (Recipe recipe : recipes) {
+            byte[] payload = encode(recipe);
+            payloads.add(payload);
+            total += RECORD_HEADER_SIZE + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] payload : payloads) {
+            buffer.putInt(payload.length).putInt(crc(payload)).put(payload);
+        }
+        buffer.flip();
+        lock.writeLock().lock();
+        try {
+            reopenIfClosed();
+            try {
+                writeFully(channel, buffer, size);
+                if (syncWrites) {
+                    channel.force(false);
+                }
+            } catch (IOException ex) {
+                if (channel.isOpen()) {
+                    channel.truncate(size);
+                }
+                throw ex;
+            }
+            long position = size;
+            for (int i = 0; i < recipes.size(); i++) {
+                int length = payloads.get(i).length;
+                Entry previous = index.put(recipes.get(i).getId(), new Entry(position, length));
+                if (previous != null) {
+                    liveBytes -= previous.recordSize();
+                }
+                liveBytes += RECORD_HEADER_SIZE + length;
+                position += RECORD_HEADER_SIZE + length;
+            }
+            size = position;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Optional<Recipe> read(ObjectId id) throws IOException {
+        if (!channel.isOpen()) {
+            lock.writeLock().lock();
+            try {
+                reopenIfClosed();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            return Optional.of(decode(readFully(channel, entry.offset() + RECORD_HEADER_SIZE, entry.length()).array()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    double garbageRatio() {
+        lock.readLock().lock();
+        try {
+            long records = size - FILE_HEADER_SIZE;
+            return records == 0 ? 0 : 1.0 - (double) liveBytes / records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Records appended during the copy are copied again under the write lock before the swap.
+    void compact() throws IOException {
+        synchronized (compactionLock) {
+            Path target = compactionPath(path);
+            Map<ObjectId, Entry> copied = new HashMap<>();
+            Map<ObjectId, Entry> snapshot;
+            FileChannel source;
+            lock.readLock().lock();
+            try {
+                snapshot = new HashMap<>(index);
+                source = channel;
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                reopenIfClosed();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            long position = FILE_HEADER_SIZE;
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(out, ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip(), 0);
+                for (Map.Entry<ObjectId, Entry> live : snapshot.entrySet()) {
+                    position = copyRecord(source, live.getValue(), out, position);
+                    copied.put(live.getKey(), new Entry(position - live.getValue().recordSize(),
+                            live.getValue().length()));
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                reopenIfClosed();
+                Map<ObjectId, Entry> rebuilt = new HashMap<>(index.size());
+                long live = 0;
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                    for (Map.Entry<ObjectId, Entry> current : index.entrySet()) {
+                        Entry entry = current.getValue();
+                        Entry moved = entry.equals(snapshot.get(current.getKey()))
+                                ? copied.get(current.getKey()) : null;
+                        if (moved == null) {
+                            position = copyRecord(channel, entry, out, position);
+                            moved = new Entry(position - entry.recordSize(), entry.length());
+                        }
+                        rebuilt.put(current.getKey(), moved);
+                        live += moved.recordSize();
+                    }
+                    out.force(true);
+                }
+                channel.close();
+                Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                index.clear();
+                index.putAll(rebuilt);
+                size = position;
+                liveBytes = live;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            if (channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // An interrupt during file I/O closes the channel for everyone, so the next caller reopens it.
+    private void reopenIfClosed() throws IOException {
+        if (channel.isOpen()) {
+            return;
+        }
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(size);
+    }
+
+    private static long copyRecord(FileChannel from, Entry entry, FileChannel to, long position) throws IOException {
+        ByteBuffer record = readFully(from, entry.offset(), entry.recordSize());
+        writeFully(to, record, position);
+        return position + entry.recordSize();
+    }
+
+    private byte[] encode(Recipe recipe) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), recipe, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    private Recipe decode(byte[] payload) {
+        return codec.decode(new BsonBinaryReader(ByteBuffer.wrap(payload)), DecoderContext.builder().build());
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of recipe log at byte " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static Path compactionPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private record Entry(long offset, int length) {
+        int recordSize() {
+            return RECORD_HEADER_SIZE + length;
+        }
+    }
+}
@@ -1,111 +1,111 @@
 package org.jhandron.repository;
 
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.ReplaceOptions;
-import com.mongodb.client.model.Sorts;
-import org.jhandron.db.MongoConnectionManager;
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
 import org.jhandron.model.Recipe;
-import org.bson.Document;
-import org.bson.conversions.Bson;
-import org.bson.types.ObjectId;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
 
-public class RecipeRepository {
-    private final MongoCollection<Document> collection;
+public interface RecipeRepository extends AutoCloseable {
+    JsonWriterSettings EXPORT_JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
 
-    public RecipeRepository(boolean p_testEnvironment) {
-        this.collection = MongoConnectionManager.getInstance().getRecipeCollection(p_testEnvironment);
+    enum SearchMode {
+        SUBSTRING,
+        INDEXED
     }
 
-    public List<Recipe> listAll() {
-        List<Recipe> recipes = new ArrayList<>();
-        for (Document doc : collection.find().sort(Sorts.ascending("name"))) {
-            recipes.add(Recipe.fromDocument(doc));
+    // RECIPE_STORAGE picks the backend: mongo (the default) or local.
+    static String storageName() {
+        String storage = Objects.requireNonNullElse(System.getenv("RECIPE_STORAGE"), "mongo").trim();
+        if (!storage.equalsIgnoreCase("local") && !storage.equalsIgnoreCase("mongo")) {
+            throw new IllegalArgumentException("Unknown RECIPE_STORAGE \"" + storage + "\"; expected mongo or local");
         }
-        return recipes;
+        return storage.toLowerCase(Locale.ROOT);
     }
 
-    public Optional<Recipe> findById(ObjectId id) {
-        Document doc = collection.find(Filters.eq("_id", id)).first();
-        if (doc == null) {
-            return Optional.empty();
+    static RecipeRepository open(boolean p_testEnvironment) throws IOException {
+        if (storageName().equals("local")) {
+            return LocalRecipeRepository.open(LocalRecipeRepository.defaultPath(p_testEnvironment));
         }
-        return Optional.of(Recipe.fromDocument(doc));
+        return new MongoRecipeRepository(p_testEnvironment);
     }
 
-    public List<Recipe> search(String nameQuery, List<String> tags, List<String> ingredientKeywords) {
-        List<Bson> filters = new ArrayList<>();
-        if (nameQuery != null && !nameQuery.isBlank()) {
-            filters.add(Filters.regex("name", nameQuery, "i"));
-        }
-        if (tags != null && !tags.isEmpty()) {
-            List<String> cleanedTags = tags.stream()
-                    .filter(tag -> tag != null && !tag.isBlank())
-                    .map(String::trim)
-                    .toList();
-            if (!cleanedTags.isEmpty()) {
-                filters.add(Filters.all("tags", cleanedTags));
-            }
-        }
-        if (ingredientKeywords != null && !ingredientKeywords.isEmpty()) {
-            List<String> cleanedKeywords = ingredientKeywords.stream()
-                    .filter(keyword -> keyword != null && !keyword.isBlank())
-                    .map(String::trim)
-                    .toList();
-            if (!cleanedKeywords.isEmpty()) {
-                filters.add(Filters.or(cleanedKeywords.stream()
-                        .map(keyword -> Filters.regex("ingredients", keyword, "i"))
-                        .collect(Collectors.toList())));
-            }
-        }
+    // Names where these recipes live, so files kept next to the app are not applied to another store.
+    String storageId();
 
-        Bson finalFilter = filters.isEmpty() ? new Document() : Filters.and(filters);
+    void ensureIndexes();
 
-        List<Recipe> results = new ArrayList<>();
-        for (Document doc : collection.find(finalFilter).sort(Sorts.ascending("name"))) {
-            results.add(Recipe.fromDocument(doc));
-        }
-        return results;
+    long currentRevision();
+
+    Set<ObjectId> listIds();
+
+    List<RecipeSummary> changesSince(long revision);
+
+    List<Recipe> listAll();
+
+    List<RecipeSummary> listSummaryPage(RecipeSummary after, int batchSize);
+
+    // Same order and keyset as listSummaryPage.
+    default List<Recipe> listPage(RecipeSummary after, int batchSize) {
+        return findByIds(listSummaryPage(after, batchSize).stream().map(RecipeSummary::getId).toList());
     }
 
-    public Recipe save(Recipe recipe) {
-        Objects.requireNonNull(recipe, "recipe cannot be null");
-        if (recipe.getId() == null) {
-            ObjectId newId = new ObjectId();
-            recipe.setId(newId);
-        }
-        collection.replaceOne(Filters.eq("_id", recipe.getId()), recipe.toDocument(),
-                new ReplaceOptions().upsert(true));
-        return recipe;
+    Optional<Recipe> findById(ObjectId id);
+
+    // In the order given; repeated ids appear once and missing ones are skipped.
+    List<Recipe> findByIds(Collection<ObjectId> ids);
+
+    default List<Recipe> search(String nameQuery, List<String> tags, List<String> ingredientKeywords) {
+        return search(nameQuery, tags, ingredientKeywords, SearchMode.SUBSTRING);
     }
 
-    public int exportToJson(Path path, List<Recipe> recipes) throws IOException {
+    List<Recipe> search(String nameQuery, List<String> tags, List<String> ingredientKeywords, SearchMode mode);
+
+    // Nearest first, then by name. The start recipe is not included.
+    List<RecipeHop> findWithinHops(ObjectId id, int maxHops, LinkDirection direction);
+
+    // Fewest missing first, then by name. Ingredients match ignoring case and surrounding spaces.
+    List<PantryMatch> findByPantry(Collection<String> pantry, int maxMissing, int limit);
+
+    // Over the recipes search would return, each recipe counting once per value.
+    RecipeFacets facetCounts(String nameQuery, List<String> tags, List<String> ingredientKeywords, SearchMode mode,
+                             int limit);
+
+    Recipe save(Recipe recipe);
+
+    // One revision for the whole group. Per-recipe rejections are returned; a failure of the group is thrown.
+    Map<ObjectId, String> saveAll(List<Recipe> recipes);
+
+    default int exportToJson(Path path, List<Recipe> recipes) throws IOException {
         Objects.requireNonNull(path, "path cannot be null");
         Objects.requireNonNull(recipes, "recipes cannot be null");
-        JsonWriterSettings settings = JsonWriterSettings.builder()
-                .outputMode(JsonMode.EXTENDED)
-                .build();
         int count = 0;
         try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
             for (Recipe recipe : recipes) {
                 if (recipe == null) {
                     continue;
                 }
-                writer.write(recipe.toDocument().toJson(settings));
+                writer.write(recipe.toDocument().toJson(EXPORT_JSON_SETTINGS));
                 writer.newLine();
                 count++;
             }
@@ -113,26 +113,37 @@ public class RecipeRepository {
         return count;
     }
 
-    public int importFromJson(Path path) throws IOException {
+    default long exportAllToJson(Path path) throws IOException {
+        return exportAll(path, RecipeDumpFormat.JSON_LINES);
+    }
+
+    default long exportByIdsToJson(Path path, Collection<ObjectId> ids) throws IOException {
+        return exportByIds(path, ids, RecipeDumpFormat.JSON_LINES);
+    }
+
+    long exportAll(Path path, RecipeDumpFormat format) throws IOException;
+
+    long exportByIds(Path path, Collection<ObjectId> ids, RecipeDumpFormat format) throws IOException;
+
+    default ImportReport importFromJson(Path path) throws IOException {
+        return importFromJson(path, ImportOptions.defaults());
+    }
+
+    default ImportReport importFromJson(Path path, ImportOptions options) throws IOException {
+        return importFromJson(path, options, batch -> {
+        });
+    }
+
+    default ImportReport importFromJson(Path path, ImportOptions options,
+                                        Consumer<ImportReport.BatchResult> batchListener) throws IOException {
         Objects.requireNonNull(path, "path cannot be null");
-        int count = 0;
-        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String trimmed = line.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
-                }
-                Document doc = Document.parse(trimmed);
-                ObjectId id = doc.getObjectId("_id");
-                if (id == null) {
-                    id = new ObjectId();
-                    doc.put("_id", id);
-                }
-                collection.replaceOne(Filters.eq("_id", id), doc, new ReplaceOptions().upsert(true));
-                count++;
-            }
-        }
-        return count;
+        return importFromFile(path, RecipeDumpFormat.detect(path), options, batchListener);
+    }
+
+    ImportReport importFromFile(Path path, RecipeDumpFormat format, ImportOptions options,
+                                Consumer<ImportReport.BatchResult> batchListener) throws IOException;
+
+    @Override
+    default void close() {
     }
 }
@@ -0,0 +1,70 @@
+package org.jhandron.repository;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+
+import java.util.Date;
+import java.util.List;
+
+final class RecipeRevisions {
+    private static final String COUNTER_ID = "recipes";
+    private static final String VALUE = "value";
+    private static final String PENDING = "pending";
+    private static final String SINCE = "since";
+    // A writer that dies before releasing its revision holds readers back for at most this long.
+    private static final long LEASE_MILLIS = 5 * 60 * 1000;
+
+    private final MongoCollection<Document> counters;
+
+    RecipeRevisions(MongoCollection<Document> counters) {
+        this.counters = counters;
+    }
+
+    // Bumps the counter and records the new revision as in flight in the same update, so no reader can see
+    // the counter move without also seeing that a write at that revision may still land.
+    RevisionStamp next() {
+        Document value = new Document("$add", List.of(new Document("$ifNull", List.of("$" + VALUE, 0L)), 1L));
+        Document pending = new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$" + PENDING, List.of())),
+                List.of(new Document(RevisionStamp.REVISION, "$" + VALUE).append(SINCE, "$$NOW"))));
+        Document counter = counters.findOneAndUpdate(Filters.eq("_id", COUNTER_ID),
+                List.of(new Document("$set", new Document(VALUE, value)),
+                        new Document("$set", new Document(PENDING, pending))),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+        return new RevisionStamp(counter.get(VALUE, Number.class).longValue(), new Date());
+    }
+
+    // Called once the write stamped with this revision has finished, whether or not it succeeded. Also drops
+    // revisions whose lease ran out, which a writer that died never released.
+    void release(RevisionStamp stamp) {
+        Document keep = new Document("$and", List.of(
+                new Document("$ne", List.of("$$this." + RevisionStamp.REVISION, stamp.revision())),
+                new Document("$gt", List.of("$$this." + SINCE,
+                        new Document("$subtract", List.of("$$NOW", LEASE_MILLIS))))));
+        Document pending = new Document("$filter", new Document("input",
+                new Document("$ifNull", List.of("$" + PENDING, List.of()))).append("cond", keep));
+        counters.updateOne(Filters.eq("_id", COUNTER_ID),
+                List.of(new Document("$set", new Document(PENDING, pending))));
+    }
+
+    // The highest revision at or below which every write has finished. Writes reserve their revision before
+    // they run and can finish out of order, so readers must not look past this.
+    long stable() {
+        Document counter = counters.find(Filters.eq("_id", COUNTER_ID)).first();
+        if (counter == null) {
+            return 0L;
+        }
+        long stable = counter.get(VALUE, Number.class).longValue();
+        long expired = System.currentTimeMillis() - LEASE_MILLIS;
+        for (Document write : counter.getList(PENDING, Document.class, List.of())) {
+            Date since = write.getDate(SINCE);
+            if (since != null && since.getTime() > expired) {
+                stable = Math.min(stable, write.get(RevisionStamp.REVISION, Number.class).longValue() - 1);
+            }
+        }
+        return stable;
+    }
+}
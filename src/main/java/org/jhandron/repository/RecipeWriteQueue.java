@@ -0,0 +1,367 @@
+package org.jhandron.repository;
+
+import org.jhandron.model.Recipe;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Repeated saves of a recipe collapse into the latest. Whatever close() cannot write in time is spilled to
+// a journal and queued again on the next start.
+public class RecipeWriteQueue implements AutoCloseable {
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(250);
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    private static final Duration CLOSE_DEADLINE = Duration.ofSeconds(15);
+    private static final long MAX_RETRY_DELAY_MILLIS = 2000;
+    private static final String JOURNAL_STORAGE = "storage";
+
+    private final RecipeRepository repository;
+    private final int batchSize;
+    private final Path journal;
+    // Journaled saves from the last run that have not been written yet; the journal goes once this empties.
+    private final Set<ObjectId> replayed = new HashSet<>();
+    private final ScheduledExecutorService scheduler;
+    private final Map<ObjectId, PendingSave> pending = new LinkedHashMap<>();
+    private final Map<ObjectId, PendingSave> inFlight = new HashMap<>();
+    private final Object flushLock = new Object();
+    private boolean closed;
+    private long flushes;
+    private long failedFlushes;
+    private long documentsWritten;
+    private long coalescedSaves;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+
+    public RecipeWriteQueue(RecipeRepository repository, Duration flushInterval, int batchSize) {
+        this(repository, flushInterval, batchSize, null);
+    }
+
+    public RecipeWriteQueue(RecipeRepository repository, Duration flushInterval, int batchSize, Path journal) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.repository = Objects.requireNonNull(repository, "repository cannot be null");
+        this.batchSize = batchSize;
+        this.journal = journal;
+        if (journal != null) {
+            replayJournal();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recipe-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static Path defaultJournalPath(boolean p_testEnvironment, String storageName) {
+        String override = System.getenv("RECIPE_SAVE_JOURNAL_PATH");
+        if (override != null && !override.isBlank()) {
+            return Path.of(override);
+        }
+        String storage = storageName.equals("mongo") ? "" : "-" + storageName;
+        String fileName = "pending-saves" + storage + (p_testEnvironment ? "-dev" : "") + ".jsonl";
+        return Path.of(System.getProperty("user.home"), ".recipenotebook", fileName);
+    }
+
+    public CompletableFuture<Recipe> save(Recipe recipe) {
+        Objects.requireNonNull(recipe, "recipe cannot be null");
+        if (recipe.getId() == null) {
+            recipe.setId(new ObjectId());
+        }
+        Recipe snapshot = recipe.copy();
+        CompletableFuture<Recipe> written = new CompletableFuture<>();
+        boolean full;
+        synchronized (pending) {
+            if (closed) {
+                throw new IllegalStateException("The write queue has been closed");
+            }
+            PendingSave previous = pending.remove(recipe.getId());
+            List<CompletableFuture<Recipe>> waiters = new ArrayList<>();
+            if (previous != null) {
+                waiters.addAll(previous.waiters());
+                coalescedSaves++;
+            }
+            waiters.add(written);
+            pending.put(recipe.getId(), new PendingSave(snapshot, waiters));
+            full = pending.size() >= batchSize;
+        }
+        if (full) {
+            try {
+                scheduler.execute(this::flushQuietly);
+            } catch (RejectedExecutionException ex) {
+                // Closing is already under way and flushes everything that is still pending.
+            }
+        }
+        return written;
+    }
+
+    public Optional<Recipe> findPending(ObjectId id) {
+        synchronized (pending) {
+            PendingSave save = pending.getOrDefault(id, inFlight.get(id));
+            return save == null ? Optional.empty() : Optional.of(save.recipe().copy());
+        }
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            List<PendingSave> batch;
+            while (!(batch = takeBatch()).isEmpty()) {
+                writeBatch(batch);
+            }
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (pending) {
+            return new Stats(pending.size(), flushes, failedFlushes, documentsWritten, coalescedSaves,
+                    lastFlushNanos / 1e6, maxFlushNanos / 1e6);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+        }
+        scheduler.shutdown();
+        long deadline = System.nanoTime() + CLOSE_DEADLINE.toNanos();
+        try {
+            scheduler.awaitTermination(CLOSE_DEADLINE.toMillis(), TimeUnit.MILLISECONDS);
+            long delay = 100;
+            while (true) {
+                try {
+                    flush();
+                    break;
+                } catch (RuntimeException ex) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        System.err.println("Unable to write queued recipes before exiting: " + ex.getMessage());
+                        break;
+                    }
+                    Thread.sleep(Math.min(delay, remaining));
+                    delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<Recipe> unwritten;
+        synchronized (pending) {
+            unwritten = pending.values().stream().map(PendingSave::recipe).toList();
+        }
+        if (unwritten.isEmpty()) {
+            deleteJournal();
+        } else {
+            spillToJournal(unwritten);
+        }
+    }
+
+    // The first line names the store the saves belong to; a journal without one predates that and is replayed.
+    private void replayJournal() {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        List<Recipe> recipes = new ArrayList<>();
+        String storage = null;
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Document doc = Document.parse(line);
+                if (doc.containsKey(JOURNAL_STORAGE)) {
+                    storage = doc.getString(JOURNAL_STORAGE);
+                } else {
+                    recipes.add(Recipe.fromDocument(doc));
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            // Kept aside rather than overwritten by the next spill, so it can still be recovered by hand.
+            setJournalAside(".unreadable", "Unable to read unsaved recipes from " + journal + ": " + ex.getMessage());
+            return;
+        }
+        if (storage != null && !storage.equals(repository.storageId())) {
+            setJournalAside(".other-store", "Unsaved recipes in " + journal + " belong to " + storage
+                    + ", not " + repository.storageId());
+            return;
+        }
+        synchronized (pending) {
+            for (Recipe recipe : recipes) {
+                pending.put(recipe.getId(), new PendingSave(recipe, new ArrayList<>()));
+                replayed.add(recipe.getId());
+            }
+        }
+        System.err.println("Writing " + recipes.size() + " recipe(s) left unsaved by the last run.");
+    }
+
+    private void setJournalAside(String suffix, String reason) {
+        Path aside = journal.resolveSibling(journal.getFileName() + suffix);
+        System.err.println(reason + "; moved to " + aside);
+        try {
+            Files.move(journal, aside, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException moveFailure) {
+            System.err.println("Unable to move " + journal + ": " + moveFailure.getMessage());
+        }
+    }
+
+    private void spillToJournal(List<Recipe> unwritten) {
+        try {
+            Files.createDirectories(journal.toAbsolutePath().getParent());
+            Path temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(new Document(JOURNAL_STORAGE, repository.storageId()).toJson());
+                writer.newLine();
+                for (Recipe recipe : unwritten) {
+                    writer.write(recipe.toDocument().toJson());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.err.println(unwritten.size() + " recipe(s) could not be written and were kept in " + journal
+                    + "; they will be saved the next time the app starts.");
+        } catch (IOException ex) {
+            System.err.println("Lost " + unwritten.size() + " unsaved recipe(s), unable to write " + journal + ": "
+                    + ex.getMessage());
+            unwritten.forEach(recipe -> System.err.println(recipe.toDocument().toJson()));
+        }
+    }
+
+    private void deleteJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(journal);
+        } catch (IOException ex) {
+            System.err.println("Unable to delete " + journal + ": " + ex.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            // The batch is back in the queue; the next tick retries it.
+            System.err.println("Unable to write queued recipes: " + ex.getMessage());
+        }
+    }
+
+    private List<PendingSave> takeBatch() {
+        synchronized (pending) {
+            List<PendingSave> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<PendingSave> it = pending.values().iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                PendingSave save = it.next();
+                batch.add(save);
+                inFlight.put(save.id(), save);
+                it.remove();
+            }
+            return batch;
+        }
+    }
+
+    private void writeBatch(List<PendingSave> batch) {
+        // Each attempt writes fresh copies, so a retried batch never carries a stale revision.
+        List<Recipe> recipes = batch.stream().map(save -> save.recipe().copy()).toList();
+        long started = System.nanoTime();
+        try {
+            // Rejected recipes will be rejected again, so they fail instead of going back in the queue.
+            Map<ObjectId, String> rejected = repository.saveAll(recipes);
+            recordFlush(started, batch.size() - rejected.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(recipes.get(i), rejected.get(batch.get(i).id()));
+            }
+            forgetReplayed(batch);
+        } catch (RuntimeException ex) {
+            requeue(batch);
+            throw ex;
+        } finally {
+            synchronized (pending) {
+                batch.forEach(save -> inFlight.remove(save.id()));
+            }
+        }
+    }
+
+    private void forgetReplayed(List<PendingSave> batch) {
+        boolean done;
+        synchronized (pending) {
+            if (replayed.isEmpty()) {
+                return;
+            }
+            batch.forEach(save -> replayed.remove(save.id()));
+            done = replayed.isEmpty();
+        }
+        if (done) {
+            deleteJournal();
+        }
+    }
+
+    private void requeue(List<PendingSave> batch) {
+        synchronized (pending) {
+            failedFlushes++;
+            for (PendingSave save : batch) {
+                ObjectId id = save.id();
+                PendingSave newer = pending.get(id);
+                if (newer != null) {
+                    newer.waiters().addAll(0, save.waiters());
+                } else {
+                    pending.put(id, save);
+                }
+            }
+        }
+    }
+
+    private void recordFlush(long started, int written) {
+        long elapsed = System.nanoTime() - started;
+        synchronized (pending) {
+            flushes++;
+            documentsWritten += written;
+            lastFlushNanos = elapsed;
+            maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+        }
+    }
+
+    private record PendingSave(Recipe recipe, List<CompletableFuture<Recipe>> waiters) {
+        private ObjectId id() {
+            return recipe.getId();
+        }
+
+        private void complete(Recipe written, String error) {
+            if (error != null) {
+                IllegalStateException failure = new IllegalStateException(error);
+                waiters.forEach(waiter -> waiter.completeExceptionally(failure));
+                return;
+            }
+            waiters.forEach(waiter -> waiter.complete(written));
+        }
+    }
+
+    public record Stats(int queueDepth, long flushes, long failedFlushes, long documentsWritten,
+                        long coalescedSaves, double lastFlushMillis, double maxFlushMillis) {
+    }
+}
@@ -0,0 +1,46 @@
+package org.jhandron.repository;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+record RevisionStamp(long revision, Date updatedAt) {
+    static final String REVISION = "revision";
+    static final String UPDATED_AT = "updatedAt";
+
+    private static final byte BSON_DATE_TIME = 0x09;
+    private static final byte BSON_INT64 = 0x12;
+
+    void applyTo(Document doc) {
+        doc.put(REVISION, revision);
+        doc.put(UPDATED_AT, updatedAt);
+    }
+
+    void applyTo(BsonDocument doc) {
+        doc.put(REVISION, new BsonInt64(revision));
+        doc.put(UPDATED_AT, new BsonDateTime(updatedAt.getTime()));
+    }
+
+    // Appends both fields in place of the terminating zero; the caller must know neither key is present yet.
+    RawBsonDocument appendTo(RawBsonDocument doc) {
+        ByteBuffer source = doc.getByteBuffer().asNIO().order(ByteOrder.LITTLE_ENDIAN);
+        int length = source.remaining();
+        byte[] revisionKey = REVISION.getBytes(StandardCharsets.UTF_8);
+        byte[] updatedAtKey = UPDATED_AT.getBytes(StandardCharsets.UTF_8);
+        int newLength = length + (revisionKey.length + 10) + (updatedAtKey.length + 10);
+        ByteBuffer target = ByteBuffer.allocate(newLength).order(ByteOrder.LITTLE_ENDIAN);
+        target.putInt(newLength);
+        target.put(source.slice(source.position() + 4, length - 5));
+        target.put(BSON_INT64).put(revisionKey).put((byte) 0).putLong(revision);
+        target.put(BSON_DATE_TIME).put(updatedAtKey).put((byte) 0).putLong(updatedAt.getTime());
+        target.put((byte) 0);
+        return new RawBsonDocument(target.array());
+    }
+}
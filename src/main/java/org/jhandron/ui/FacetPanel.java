@@ -0,0 +1,83 @@
+package org.jhandron.ui;
+
+import org.jhandron.model.FacetCount;
+import org.jhandron.model.RecipeFacets;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.GridLayout;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+class FacetPanel extends JPanel {
+    private static final int VISIBLE_ROWS = 6;
+
+    private final DefaultListModel<FacetCount> tagModel = new DefaultListModel<>();
+    private final DefaultListModel<FacetCount> ingredientModel = new DefaultListModel<>();
+
+    FacetPanel(BiConsumer<RecipeListPanel.FilterType, String> onPick) {
+        super(new GridLayout(1, 2, 6, 0));
+        setBorder(BorderFactory.createTitledBorder("Refine"));
+        add(buildColumn("Tags", tagModel, value -> onPick.accept(RecipeListPanel.FilterType.TAGS, value)));
+        add(buildColumn("Ingredients", ingredientModel,
+                value -> onPick.accept(RecipeListPanel.FilterType.INGREDIENTS, value)));
+    }
+
+    void setFacets(RecipeFacets facets) {
+        replace(tagModel, facets.tags());
+        replace(ingredientModel, facets.ingredients());
+    }
+
+    private static void replace(DefaultListModel<FacetCount> model, List<FacetCount> counts) {
+        model.clear();
+        model.addAll(counts);
+    }
+
+    private static JPanel buildColumn(String title, DefaultListModel<FacetCount> model,
+                                      Consumer<String> onPick) {
+        JList<FacetCount> list = new JList<>(model);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setVisibleRowCount(VISIBLE_ROWS);
+        list.setCellRenderer(new CountRenderer());
+        list.setToolTipText("Click a value to show only the recipes that have it.");
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent event) {
+                int index = list.locationToIndex(event.getPoint());
+                if (SwingUtilities.isLeftMouseButton(event) && index >= 0
+                        && list.getCellBounds(index, index).contains(event.getPoint())) {
+                    list.clearSelection();
+                    onPick.accept(model.get(index).value());
+                }
+            }
+        });
+        JPanel column = new JPanel(new BorderLayout(0, 2));
+        column.add(new JLabel(title), BorderLayout.NORTH);
+        column.add(new JScrollPane(list), BorderLayout.CENTER);
+        return column;
+    }
+
+    private static final class CountRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                      boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            if (value instanceof FacetCount facet) {
+                setText(facet.value() + " (" + facet.count() + ")");
+            }
+            return this;
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package org.jhandron.ui;
 
 import com.formdev.flatlaf.*;
+import org.jhandron.index.FullTextIndex;
+import org.jhandron.index.RecipeCatalog;
+import org.jhandron.model.LinkDirection;
+import org.jhandron.model.PantryMatch;
 import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeHop;
+import org.jhandron.model.RecipeSummary;
+import org.jhandron.repository.AsyncRecipeRepository;
+import org.jhandron.repository.CachingRecipeRepository;
+import org.jhandron.repository.CatalogSnapshotStore;
+import org.jhandron.repository.ImportOptions;
+import org.jhandron.repository.ImportReport;
+import org.jhandron.repository.RecipeDumpFormat;
 import org.jhandron.repository.RecipeRepository;
+import org.jhandron.repository.RecipeWriteQueue;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.BorderLayout;
 import java.awt.Cursor;
@@ -14,31 +28,84 @@ import java.awt.FlowLayout;
 import java.awt.Insets;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Vector;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 public class MainFrame extends JFrame {
-    private final RecipeRepository repository;
+    private static final int LOAD_BATCH_SIZE = parsePositiveInt(System.getenv("RECIPE_LOAD_BATCH_SIZE"), 500);
+    private static final int MAX_REPORTED_FAILURES = 10;
+    private static final int FULL_TEXT_RESULTS = 50;
+    private static final int PANTRY_RESULTS = 200;
+    private static final int FACET_LIMIT = 20;
+    private static final int PANTRY_MAX_MISSING = parseNonNegativeInt(System.getenv("RECIPE_PANTRY_MAX_MISSING"), 2);
+    private static final Duration IO_TIMEOUT = Duration.ofSeconds(parsePositiveInt(
+            System.getenv("RECIPE_IO_TIMEOUT_SECONDS"), (int) AsyncRecipeRepository.DEFAULT_TIMEOUT.toSeconds()));
+    private static final Executor EDT = SwingUtilities::invokeLater;
+    private static final int SNAPSHOT_INTERVAL_MINUTES = parsePositiveInt(
+            System.getenv("RECIPE_SNAPSHOT_INTERVAL_MINUTES"), 5);
+
+    private final AsyncRecipeRepository repository;
     private final RecipeListPanel listPanel;
     private final JTabbedPane editorTabs;
     private final Map<ObjectId, RecipeEditorPanel> openRecipeTabs = new HashMap<>();
     private final Map<RecipeEditorPanel, TabInfo> tabInfoLookup = new HashMap<>();
-    private List<Recipe> allRecipes = new ArrayList<>();
-
-    public MainFrame(boolean p_testEnvironment) {
+    private final RecipeCatalog catalog = new RecipeCatalog();
+    // Live view over the catalog in name order; rows are built as they are read.
+    private final List<RecipeSummary> allRecipes = catalog.recipes();
+    private final FullTextIndex textIndex = new FullTextIndex();
+    private RecipeLoader recipeLoader;
+    private TextIndexer textIndexer;
+    private long catalogRevision;
+    private final CatalogSnapshotStore snapshotStore;
+    // Snapshot and PDF files; one thread, so snapshot writes never overlap.
+    private final ExecutorService fileExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recipe-file-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long snapshotRevision = -1;
+    private volatile CatalogSnapshotStore.CatalogSnapshot exitSnapshot;
+
+    public MainFrame(RecipeRepository storage, boolean p_testEnvironment) {
         super("Recipe Notebook");
         setIconImage(new ImageIcon("C:\\Users\\Jason\\Downloads\\RecipeNotebook2\\Cooking_icon.png").getImage());
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
         setPreferredSize(new Dimension(1100, 650));
 
-        repository = new RecipeRepository(p_testEnvironment);
+        RecipeRepository recipes = new CachingRecipeRepository(storage,
+                parsePositiveInt(System.getenv("RECIPE_CACHE_ENTRIES"), CachingRecipeRepository.DEFAULT_MAX_ENTRIES),
+                parsePositiveInt(System.getenv("RECIPE_CACHE_MEGABYTES"),
+                        (int) (CachingRecipeRepository.DEFAULT_MAX_BYTES >> 20)) * 1024L * 1024L);
+        repository = new AsyncRecipeRepository(recipes, IO_TIMEOUT, new RecipeWriteQueue(recipes,
+                Duration.ofMillis(parsePositiveInt(System.getenv("RECIPE_SAVE_FLUSH_MILLIS"),
+                        (int) RecipeWriteQueue.DEFAULT_FLUSH_INTERVAL.toMillis())),
+                parsePositiveInt(System.getenv("RECIPE_SAVE_BATCH_SIZE"), RecipeWriteQueue.DEFAULT_BATCH_SIZE),
+                RecipeWriteQueue.defaultJournalPath(p_testEnvironment, RecipeRepository.storageName())));
+        snapshotStore = new CatalogSnapshotStore(
+                CatalogSnapshotStore.defaultPath(p_testEnvironment, RecipeRepository.storageName()),
+                recipes.storageId());
         listPanel = new RecipeListPanel();
         editorTabs = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
         setJMenuBar(buildMenuBar());
@@ -53,7 +120,17 @@ public class MainFrame extends JFrame {
         add(splitPane, BorderLayout.CENTER);
 
         attachListListeners();
-        loadAllRecipes(true);
+        // Exiting the window runs this too, so queued saves are written before the JVM goes away.
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "recipe-shutdown"));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                exitSnapshot = captureSnapshot();
+            }
+        });
+        new Timer((int) Duration.ofMinutes(SNAPSHOT_INTERVAL_MINUTES).toMillis(), e -> writeSnapshot()).start();
+        ensureIndexes();
+        loadFromSnapshot();
         pack();
         setLocationRelativeTo(null);
     }
@@ -66,10 +143,14 @@ public class MainFrame extends JFrame {
         importItem.addActionListener(event -> importRecipes());
         JMenuItem exportItem = new JMenuItem("Export Recipes...");
         exportItem.addActionListener(event -> exportRecipes());
+        JMenuItem exportAllItem = new JMenuItem("Export All Recipes...");
+        exportAllItem.addActionListener(event -> exportAllRecipes());
         JMenuItem exitItem = new JMenuItem("Exit");
-        exitItem.addActionListener(event -> System.exit(0));
+        // Goes through windowClosing like the close button, so the exit snapshot is captured.
+        exitItem.addActionListener(event -> dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING)));
         fileMenu.add(importItem);
         fileMenu.add(exportItem);
+        fileMenu.add(exportAllItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
 
@@ -99,7 +180,8 @@ public class MainFrame extends JFrame {
     private void importRecipes() {
         JFileChooser chooser = new JFileChooser();
         chooser.setDialogTitle("Import Recipes");
-        chooser.setFileFilter(new FileNameExtensionFilter("JSON Lines (*.json)", "json"));
+        chooser.setFileFilter(new FileNameExtensionFilter("Recipe dumps (*.json, *.json.gz, *.bson, *.bson.gz)",
+                "json", "bson", "gz"));
         int result = chooser.showOpenDialog(this);
         if (result != JFileChooser.APPROVE_OPTION) {
             return;
@@ -114,17 +196,51 @@ public class MainFrame extends JFrame {
         if (confirm != JOptionPane.OK_OPTION) {
             return;
         }
-        try {
-            int count = repository.importFromJson(file.toPath());
-            loadAllRecipes(false);
-            refreshEditorReferences();
+        CompletableFuture<ImportReport> importTask = repository.importFromJson(file.toPath(), importOptions(),
+                batch -> {
+                });
+        showBusyUntilDone(importTask);
+        whenDone(importTask, report -> {
+            applyRecipeChanges();
             JOptionPane.showMessageDialog(this,
-                    "Imported " + count + " recipes.",
-                    "Import Complete",
-                    JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            showError("Unable to import recipes: " + ex.getMessage());
+                    buildImportSummary(report),
+                    report.hasFailures() ? "Import Completed With Errors" : "Import Complete",
+                    report.hasFailures() ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+        }, "Unable to import recipes: ");
+    }
+
+    private static ImportOptions importOptions() {
+        ImportOptions defaults = ImportOptions.defaults();
+        return new ImportOptions(
+                parsePositiveInt(System.getenv("RECIPE_IMPORT_BATCH_SIZE"), defaults.batchSize()),
+                parsePositiveInt(System.getenv("RECIPE_IMPORT_PARSER_THREADS"), defaults.parserThreads()),
+                parsePositiveInt(System.getenv("RECIPE_IMPORT_WRITER_THREADS"), defaults.writerThreads()),
+                parsePositiveInt(System.getenv("RECIPE_IMPORT_QUEUE_CAPACITY"), defaults.queueCapacity()),
+                Boolean.parseBoolean(System.getenv("RECIPE_IMPORT_MEMORY_MAPPED")));
+    }
+
+    private String buildImportSummary(ImportReport report) {
+        StringBuilder summary = new StringBuilder("Imported " + report.getImportedCount() + " recipes ("
+                + report.getInsertedCount() + " new, " + report.getModifiedCount() + " updated) in "
+                + report.getBatches().size() + " batches.");
+        summary.append(String.format("%nRead %.1f MB at %.1f MB/s, %.0f recipes/s.",
+                report.getInputBytes() / (1024.0 * 1024.0), report.getMegabytesPerSecond(),
+                report.getDocumentsPerSecond()));
+        if (report.getDuplicateCount() > 0) {
+            summary.append("\n").append(report.getDuplicateCount())
+                    .append(" lines repeated an earlier recipe id; the last copy of each was kept.");
+        }
+        List<ImportReport.FailedLine> failures = report.getFailures();
+        if (!failures.isEmpty()) {
+            summary.append("\n\n").append(failures.size()).append(" lines could not be imported:");
+            failures.stream()
+                    .limit(MAX_REPORTED_FAILURES)
+                    .forEach(failure -> summary.append("\n").append(failure));
+            if (failures.size() > MAX_REPORTED_FAILURES) {
+                summary.append("\n...and ").append(failures.size() - MAX_REPORTED_FAILURES).append(" more.");
+            }
         }
+        return summary.toString();
     }
 
     private void exportRecipes() {
@@ -135,34 +251,70 @@ public class MainFrame extends JFrame {
                     JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        List<Recipe> selected = promptForExportRecipes();
+        List<RecipeSummary> selected = promptForExportRecipes();
         if (selected.isEmpty()) {
             return;
         }
+        ExportTarget target = chooseExportTarget();
+        if (target == null) {
+            return;
+        }
+        List<ObjectId> ids = selected.stream().map(RecipeSummary::getId).toList();
+        CompletableFuture<Long> exportTask = repository.exportByIds(target.file().toPath(), ids, target.format());
+        showBusyUntilDone(exportTask);
+        whenDone(exportTask, count -> showExportComplete(count, target.file()), "Unable to export recipes: ");
+    }
+
+    private void exportAllRecipes() {
+        ExportTarget target = chooseExportTarget();
+        if (target == null) {
+            return;
+        }
+        CompletableFuture<Long> exportTask = repository.exportAll(target.file().toPath(), target.format());
+        showBusyUntilDone(exportTask);
+        whenDone(exportTask, count -> showExportComplete(count, target.file()), "Unable to export recipes: ");
+    }
+
+    private ExportTarget chooseExportTarget() {
         JFileChooser chooser = new JFileChooser();
         chooser.setDialogTitle("Export Recipes");
-        chooser.setFileFilter(new FileNameExtensionFilter("JSON Lines (*.json)", "json"));
+        chooser.setAcceptAllFileFilterUsed(false);
+        Map<FileFilter, RecipeDumpFormat> formats = new HashMap<>();
+        for (RecipeDumpFormat format : RecipeDumpFormat.values()) {
+            String extension = format.getExtension();
+            FileFilter filter = new FileNameExtensionFilter(format.toString(),
+                    extension.substring(extension.lastIndexOf('.') + 1));
+            formats.put(filter, format);
+            chooser.addChoosableFileFilter(filter);
+            if (format == RecipeDumpFormat.JSON_LINES) {
+                chooser.setFileFilter(filter);
+            }
+        }
         int result = chooser.showSaveDialog(this);
         if (result != JFileChooser.APPROVE_OPTION) {
-            return;
+            return null;
         }
+        RecipeDumpFormat format = formats.getOrDefault(chooser.getFileFilter(), RecipeDumpFormat.JSON_LINES);
         File file = chooser.getSelectedFile();
-        if (!file.getName().toLowerCase().endsWith(".json")) {
-            file = new File(file.getParentFile(), file.getName() + ".json");
-        }
-        try {
-            int count = repository.exportToJson(file.toPath(), selected);
-            JOptionPane.showMessageDialog(this,
-                    "Exported " + count + " recipes to:\n" + file.getAbsolutePath(),
-                    "Export Complete",
-                    JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            showError("Unable to export recipes: " + ex.getMessage());
+        String extension = "." + format.getExtension();
+        if (!file.getName().toLowerCase().endsWith(extension)) {
+            file = new File(file.getParentFile(), file.getName() + extension);
         }
+        return new ExportTarget(file, format);
+    }
+
+    private void showExportComplete(long count, File file) {
+        JOptionPane.showMessageDialog(this,
+                "Exported " + count + " recipes to:\n" + file.getAbsolutePath(),
+                "Export Complete",
+                JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private List<Recipe> promptForExportRecipes() {
-        JList<Recipe> recipeList = new JList<>(new Vector<>(allRecipes));
+    private List<RecipeSummary> promptForExportRecipes() {
+        RecipeListModel recipeModel = new RecipeListModel();
+        recipeModel.setRecipes(catalog.snapshot());
+        JList<RecipeSummary> recipeList = new JList<>(recipeModel);
+        recipeList.setPrototypeCellValue(RecipeListModel.PROTOTYPE);
         recipeList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         recipeList.setVisibleRowCount(12);
         JScrollPane scrollPane = new JScrollPane(recipeList);
@@ -176,7 +328,7 @@ public class MainFrame extends JFrame {
         if (result != JOptionPane.OK_OPTION) {
             return List.of();
         }
-        List<Recipe> selected = recipeList.getSelectedValuesList();
+        List<RecipeSummary> selected = recipeList.getSelectedValuesList();
         if (selected.isEmpty()) {
             JOptionPane.showMessageDialog(this,
                     "Select at least one recipe to export.",
@@ -200,9 +352,9 @@ public class MainFrame extends JFrame {
             @Override
             public void mouseClicked(MouseEvent event) {
                 if (event.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(event)) {
-                    Recipe selected = listPanel.getSelectedRecipe();
+                    RecipeSummary selected = listPanel.getSelectedRecipe();
                     if (selected != null) {
-                        openRecipeTab(selected);
+                        openSavedRecipe(selected);
                     }
                 }
             }
@@ -215,102 +367,258 @@ public class MainFrame extends JFrame {
         openRecipeTab(newRecipe);
     }
 
+    private void ensureIndexes() {
+        repository.ensureIndexes().exceptionally(ex -> {
+            System.err.println("Unable to create recipe indexes: " + describe(ex));
+            return null;
+        });
+    }
+
     private void loadAllRecipes(boolean openNewTab) {
+        if (recipeLoader != null) {
+            recipeLoader.cancel();
+        }
+        if (openNewTab) {
+            startNewRecipe();
+        }
+        recipeLoader = new RecipeLoader(LOAD_BATCH_SIZE);
+        listPanel.setLoading(true, 0);
+        recipeLoader.start();
+    }
+
+    private void loadFromSnapshot() {
+        startNewRecipe();
+        listPanel.setLoading(true, 0);
+        CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return snapshotStore.read();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, fileExecutor)
+                .exceptionally(ex -> {
+                    System.err.println("Ignoring unreadable catalog snapshot: " + describe(ex));
+                    return Optional.empty();
+                })
+                .thenAcceptAsync(snapshot -> {
+                    if (snapshot.isEmpty()) {
+                        loadAllRecipes(false);
+                        return;
+                    }
+                    catalog.rebuild(snapshot.get().recipes());
+                    catalogRevision = snapshot.get().revision();
+                    snapshotRevision = catalogRevision;
+                    applyFilter();
+                    listPanel.setLoading(false, catalog.size());
+                    refreshEditorReferences();
+                    applyRecipeChanges();
+                    removeDeletedRecipes();
+                    indexRecipeText();
+                }, EDT);
+    }
+
+    // Revisions only report writes, so recipes deleted since the snapshot are found by comparing ids.
+    private void removeDeletedRecipes() {
+        whenDone(repository.currentRevision(), revision -> {
+            // Picked before listing ids, and without queued saves, so a recipe saved meanwhile is never taken
+            // for deleted; that includes new ones, which have no revision until they are written.
+            List<ObjectId> candidates = catalog.findIdsUpToRevision(revision).stream()
+                    .filter(id -> !repository.hasPendingSave(id))
+                    .toList();
+            whenDone(repository.listIds(), ids -> removeDeletedRecipes(candidates, ids, revision),
+                    "Unable to refresh recipes: ");
+        }, "Unable to refresh recipes: ");
+    }
+
+    private void removeDeletedRecipes(List<ObjectId> candidates, Set<ObjectId> ids, long revision) {
+        List<ObjectId> deleted = candidates.stream()
+                .filter(id -> !ids.contains(id))
+                .filter(id -> catalog.contains(id) && catalog.get(id).getRevision() <= revision)
+                .toList();
+        if (deleted.isEmpty()) {
+            return;
+        }
+        deleted.forEach(catalog::remove);
+        deleted.forEach(textIndex::remove);
+        applyFilter();
+        refreshEditorReferences();
+    }
+
+    private CatalogSnapshotStore.CatalogSnapshot captureSnapshot() {
+        if (recipeLoader != null && !recipeLoader.isDone()) {
+            return null;
+        }
+        return new CatalogSnapshotStore.CatalogSnapshot(catalogRevision, catalog.snapshot());
+    }
+
+    private void writeSnapshot() {
+        if (catalogRevision == snapshotRevision) {
+            return;
+        }
+        CatalogSnapshotStore.CatalogSnapshot snapshot = captureSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        snapshotRevision = snapshot.revision();
+        CompletableFuture.runAsync(() -> {
+            try {
+                snapshotStore.write(snapshot);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, fileExecutor).exceptionally(ex -> {
+            System.err.println("Unable to write catalog snapshot: " + describe(ex));
+            return null;
+        });
+    }
+
+    private void shutdown() {
         try {
-            allRecipes = repository.listAll();
-            applyFilter();
-            refreshEditorReferences();
-            if (openNewTab) {
-                if (!allRecipes.isEmpty()) {
-                    SwingUtilities.invokeLater(() -> listPanel.clearSelection());
+            repository.close();
+        } finally {
+            // A periodic snapshot still being written would race the exit snapshot for the same file.
+            fileExecutor.shutdown();
+            try {
+                fileExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            CatalogSnapshotStore.CatalogSnapshot snapshot = exitSnapshot;
+            if (snapshot != null) {
+                try {
+                    snapshotStore.write(snapshot);
+                } catch (Exception ex) {
+                    System.err.println("Unable to write catalog snapshot: " + ex.getMessage());
                 }
-                startNewRecipe();
             }
-        } catch (Exception ex) {
-            showError("Unable to load recipes: " + ex.getMessage());
+        }
+    }
+
+    private <T> void whenDone(CompletableFuture<T> task, Consumer<T> onSuccess, String failureMessage) {
+        task.whenCompleteAsync((value, ex) -> {
+            if (ex == null) {
+                onSuccess.accept(value);
+            } else if (!(unwrap(ex) instanceof CancellationException)) {
+                showError(failureMessage + describe(ex));
+            }
+        }, EDT);
+    }
+
+    private void showBusyUntilDone(CompletableFuture<?> task) {
+        Cursor previousCursor = getCursor();
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        task.whenCompleteAsync((value, ex) -> setCursor(previousCursor), EDT);
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof UncheckedIOException ? cause.getCause() : cause;
+    }
+
+    private static String describe(Throwable ex) {
+        Throwable cause = unwrap(ex);
+        if (cause instanceof TimeoutException) {
+            return "the database did not respond within " + IO_TIMEOUT.toSeconds() + " seconds.";
+        }
+        return cause.getMessage();
+    }
+
+    private static int parsePositiveInt(String value, int fallback) {
+        try {
+            int parsed = value == null ? fallback : Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : fallback;
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    private static int parseNonNegativeInt(String value, int fallback) {
+        try {
+            int parsed = value == null ? fallback : Integer.parseInt(value.trim());
+            return parsed >= 0 ? parsed : fallback;
+        } catch (NumberFormatException ex) {
+            return fallback;
         }
     }
 
     private void saveRecipe(RecipeEditorPanel panel, Recipe recipe) {
+        CompletableFuture<Recipe> written;
         try {
-            Recipe saved = repository.save(recipe);
-            loadAllRecipes(false);
-            selectRecipe(saved.getId());
-            panel.displayRecipe(saved, allRecipes);
-            updateTabTitle(panel, saved);
-            registerRecipeTab(panel, saved);
-            JOptionPane.showMessageDialog(this, recipe.getName() + "  recipe created.", "Saved", JOptionPane.INFORMATION_MESSAGE);
+            written = repository.save(recipe);
         } catch (Exception ex) {
             showError("Unable to save recipe: " + ex.getMessage());
+            return;
         }
+        // The queue acknowledges the save right away; the catalog catches up on revisions once it is written.
+        catalog.put(RecipeSummary.of(recipe));
+        textIndex.put(recipe);
+        applyFilter();
+        refreshEditorReferences(List.of(RecipeSummary.of(recipe)));
+        selectRecipe(recipe.getId());
+        panel.displayRecipe(recipe);
+        updateTabTitle(panel, recipe);
+        registerRecipeTab(panel, recipe);
+        JOptionPane.showMessageDialog(this, recipe.getName() + "  recipe created.", "Saved", JOptionPane.INFORMATION_MESSAGE);
+        whenDone(written, saved -> applyRecipeChanges(), "Unable to save recipe: ");
     }
 
     private void selectRecipe(ObjectId id) {
         if (id == null) {
             return;
         }
-        Optional<Recipe> match = allRecipes.stream().filter(r -> id.equals(r.getId())).findFirst();
-        match.ifPresent(recipe -> SwingUtilities.invokeLater(() -> {
-            List<Recipe> filtered = applyFilter();
-            if (filtered.stream().anyMatch(item -> id.equals(item.getId()))) {
-                listPanel.selectRecipeById(id);
-            }
-        }));
+        if (!catalog.contains(id)) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            applyFilter();
+            listPanel.selectRecipe(catalog.get(id));
+        });
     }
 
-    private List<Recipe> applyFilter() {
+    private List<RecipeSummary> applyFilter() {
         String query = listPanel.getFilterText();
         if (query.isBlank()) {
             listPanel.updateList(allRecipes);
+            listPanel.updateFacets(catalog.facets(allRecipes, FACET_LIMIT));
             return allRecipes;
         }
         RecipeListPanel.FilterType filterType = listPanel.getSelectedFilterType();
         List<String> tokens = parseTokens(query);
-        List<Recipe> filtered = allRecipes.stream()
-                .filter(recipe -> matchesFilter(recipe, filterType, query, tokens))
-                .toList();
-        listPanel.updateList(filtered);
+        Map<ObjectId, String> notes = new HashMap<>();
+        List<RecipeSummary> filtered = switch (filterType) {
+            case INGREDIENTS -> tokens.isEmpty() ? allRecipes : catalog.findByAnyIngredient(tokens);
+            case TAGS -> tokens.isEmpty() ? allRecipes : catalog.findByAllTags(tokens);
+            case NAME -> catalog.findByName(query);
+            case FUZZY -> catalog.findFuzzy(query);
+            case FULL_TEXT -> findFullText(query);
+            case PANTRY -> findByPantry(tokens, notes);
+        };
+        listPanel.updateList(filtered, notes);
+        listPanel.updateFacets(catalog.facets(filtered, FACET_LIMIT));
         return filtered;
     }
 
-    private boolean matchesFilter(Recipe recipe, RecipeListPanel.FilterType filterType, String query,
-                                  List<String> tokens) {
-        if (recipe == null) {
-            return false;
-        }
-        switch (filterType) {
-            case INGREDIENTS -> {
-                return matchesIngredientTokens(recipe, tokens);
-            }
-            case TAGS -> {
-                return matchesTagTokens(recipe, tokens);
+    // Hits come back in relevance order; ones the catalog has not caught up with yet are left out.
+    private List<RecipeSummary> findFullText(String query) {
+        List<RecipeSummary> found = new ArrayList<>();
+        for (FullTextIndex.Hit hit : textIndex.search(query, FULL_TEXT_RESULTS)) {
+            RecipeSummary summary = catalog.get(hit.id());
+            if (summary != null) {
+                found.add(summary);
             }
-            case NAME -> {
-                String name = recipe.getName();
-                return name != null && name.toLowerCase().contains(query.toLowerCase());
-            }
-            default -> {
-                return true;
-            }
-        }
-    }
-
-    private boolean matchesTagTokens(Recipe recipe, List<String> tokens) {
-        if (tokens.isEmpty()) {
-            return true;
         }
-        List<String> tags = recipe.getTags();
-        return tokens.stream().allMatch(token -> tags.stream()
-                .anyMatch(tag -> tag != null && tag.toLowerCase().contains(token)));
+        return found;
     }
 
-    private boolean matchesIngredientTokens(Recipe recipe, List<String> tokens) {
-        if (tokens.isEmpty()) {
-            return true;
+    private List<RecipeSummary> findByPantry(List<String> pantry, Map<ObjectId, String> notes) {
+        List<RecipeSummary> found = new ArrayList<>();
+        for (PantryMatch match : catalog.findByPantry(pantry, PANTRY_MAX_MISSING, PANTRY_RESULTS)) {
+            found.add(match.recipe());
+            if (!match.missing().isEmpty()) {
+                notes.put(match.recipe().getId(), "missing " + String.join(", ", match.missing()));
+            }
         }
-        List<String> ingredients = recipe.getIngredients();
-        return tokens.stream().anyMatch(token -> ingredients.stream()
-                .anyMatch(ingredient -> ingredient != null && ingredient.toLowerCase().contains(token)));
+        return found;
     }
 
     private List<String> parseTokens(String query) {
@@ -325,7 +633,7 @@ public class MainFrame extends JFrame {
     }
 
     private List<ObjectId> openRelatedDialog(ObjectId currentId, List<ObjectId> alreadySelected) {
-        RelatedRecipeDialog dialog = new RelatedRecipeDialog(this, allRecipes, currentId, alreadySelected);
+        RelatedRecipeDialog dialog = new RelatedRecipeDialog(this, catalog, currentId, alreadySelected);
         dialog.setVisible(true);
         List<ObjectId> selected = dialog.getSelectedIds();
         if (selected == null || selected.isEmpty()) {
@@ -338,6 +646,38 @@ public class MainFrame extends JFrame {
         JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
     }
 
+    private void openSavedRecipe(RecipeSummary summary) {
+        RecipeEditorPanel existing = openRecipeTabs.get(summary.getId());
+        if (existing != null) {
+            editorTabs.setSelectedComponent(existing);
+            return;
+        }
+        whenDone(repository.findById(summary.getId()), recipe -> {
+            if (recipe.isPresent()) {
+                openRecipeTab(recipe.get());
+            } else {
+                catalog.remove(summary.getId());
+                textIndex.remove(summary.getId());
+                applyFilter();
+                showError("The recipe \"" + summary + "\" no longer exists.");
+            }
+        }, "Unable to open recipe: ");
+    }
+
+    private void openSavedRecipes(List<ObjectId> ids) {
+        List<ObjectId> toFetch = ids.stream().filter(id -> !openRecipeTabs.containsKey(id)).toList();
+        if (toFetch.isEmpty()) {
+            editorTabs.setSelectedComponent(openRecipeTabs.get(ids.get(ids.size() - 1)));
+            return;
+        }
+        whenDone(repository.findByIds(toFetch), recipes -> {
+            recipes.forEach(this::openRecipeTab);
+            if (recipes.size() < toFetch.size()) {
+                showError((toFetch.size() - recipes.size()) + " of the selected recipes no longer exist.");
+            }
+        }, "Unable to open recipes: ");
+    }
+
     private void openRecipeTab(Recipe recipe) {
         if (recipe == null) {
             return;
@@ -350,9 +690,12 @@ public class MainFrame extends JFrame {
         }
         RecipeEditorPanel panel = new RecipeEditorPanel();
         panel.setRelatedSelector(this::openRelatedDialog);
+        panel.setRelatedOpener(this::openSavedRecipes);
         panel.setSaveListener(savedRecipe -> saveRecipe(panel, savedRecipe));
         panel.setExportPdfListener(this::exportRecipePdf);
-        panel.displayRecipe(recipe, allRecipes);
+        panel.setCatalog(catalog);
+        panel.displayRecipe(recipe);
+        refreshBacklinks(panel);
 
         String title = getTabTitle(recipe);
         editorTabs.addTab(title, panel);
@@ -416,14 +759,76 @@ public class MainFrame extends JFrame {
         return new TabInfo(container, titleLabel);
     }
 
+    private void applyRecipeChanges() {
+        if (recipeLoader != null && !recipeLoader.isDone()) {
+            // The running loader catches up on its own once it finishes.
+            return;
+        }
+        whenDone(repository.changesSince(catalogRevision), changes -> {
+            if (changes.isEmpty()) {
+                return;
+            }
+            for (RecipeSummary change : changes) {
+                catalog.put(change);
+                catalogRevision = Math.max(catalogRevision, change.getRevision());
+            }
+            applyFilter();
+            refreshEditorReferences(changes);
+            indexChangedText(changes);
+        }, "Unable to refresh recipes: ");
+    }
+
+    private void indexRecipeText() {
+        if (textIndexer != null) {
+            textIndexer.cancel();
+        }
+        textIndex.clear();
+        textIndexer = new TextIndexer(LOAD_BATCH_SIZE);
+        textIndexer.fetch(null);
+    }
+
+    private void indexChangedText(List<RecipeSummary> changes) {
+        List<ObjectId> ids = changes.stream().map(RecipeSummary::getId).toList();
+        repository.findByIds(ids).thenAccept(textIndex::putAll).exceptionally(ex -> {
+            System.err.println("Unable to index recipe text: " + describe(ex));
+            return null;
+        });
+    }
+
+    private void refreshEditorReferences(Collection<RecipeSummary> changes) {
+        for (int i = 0; i < editorTabs.getTabCount(); i++) {
+            if (editorTabs.getComponentAt(i) instanceof RecipeEditorPanel panel) {
+                panel.applyRecipeChanges(changes);
+                refreshBacklinks(panel);
+            }
+        }
+    }
+
     private void refreshEditorReferences() {
         for (int i = 0; i < editorTabs.getTabCount(); i++) {
             if (editorTabs.getComponentAt(i) instanceof RecipeEditorPanel panel) {
-                panel.updateKnownRecipes(allRecipes);
+                panel.refreshRelatedNames();
+                refreshBacklinks(panel);
             }
         }
     }
 
+    private void refreshBacklinks(RecipeEditorPanel panel) {
+        ObjectId recipeId = panel.getCurrentRecipeId();
+        if (recipeId == null) {
+            panel.setBacklinks(List.of());
+            return;
+        }
+        if (recipeLoader == null || recipeLoader.isDone()) {
+            panel.setBacklinks(catalog.findLinksTo(recipeId));
+            return;
+        }
+        // Until the catalog has every recipe, only the database can tell who links here.
+        whenDone(repository.findWithinHops(recipeId, 1, LinkDirection.INCOMING),
+                hops -> panel.setBacklinks(hops.stream().map(RecipeHop::recipe).toList()),
+                "Unable to load linked recipes: ");
+    }
+
     private void exportRecipePdf(Recipe selected) {
         if (selected == null || selected.getId() == null) {
             JOptionPane.showMessageDialog(this,
@@ -443,33 +848,170 @@ public class MainFrame extends JFrame {
         if (!file.getName().toLowerCase().endsWith(".pdf")) {
             file = new File(file.getParentFile(), file.getName() + ".pdf");
         }
-        Map<ObjectId, String> nameLookup = buildRecipeNameLookup();
         List<String> relatedNames = selected.getRelatedRecipeIds().stream()
-                .map(id -> nameLookup.getOrDefault(id, "Unknown Recipe (" + id.toHexString() + ")"))
+                .map(id -> catalog.contains(id)
+                        ? Objects.toString(catalog.getName(id), id.toHexString())
+                        : "Unknown Recipe (" + id.toHexString() + ")")
                 .toList();
-        Cursor previousCursor = getCursor();
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        try {
-            RecipePdfExporter.exportRecipe(file.toPath(), selected, relatedNames);
-            JOptionPane.showMessageDialog(this,
-                    "Exported PDF to:\n" + file.getAbsolutePath(),
-                    "Export Complete",
-                    JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            showError("Unable to export PDF: " + ex.getMessage());
-        } finally {
-            setCursor(previousCursor);
+        File target = file;
+        CompletableFuture<Void> exportTask = CompletableFuture.runAsync(() -> {
+            try {
+                RecipePdfExporter.exportRecipe(target.toPath(), selected, relatedNames);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, fileExecutor);
+        showBusyUntilDone(exportTask);
+        whenDone(exportTask, ignored -> JOptionPane.showMessageDialog(this,
+                "Exported PDF to:\n" + target.getAbsolutePath(),
+                "Export Complete",
+                JOptionPane.INFORMATION_MESSAGE), "Unable to export PDF: ");
+    }
+
+    // Pages are fetched off the EDT; each one is applied on the EDT while the next is already in flight.
+    private final class RecipeLoader {
+        private final int batchSize;
+        private boolean firstPage = true;
+        private boolean cancelled;
+        private boolean done;
+        private long startRevision;
+        private CompletableFuture<?> pending;
+
+        private RecipeLoader(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        private void start() {
+            // Anything written after this point is picked up by the delta refresh once paging finishes.
+            CompletableFuture<Long> revision = repository.currentRevision();
+            pending = revision;
+            revision.whenCompleteAsync((value, ex) -> {
+                if (cancelled) {
+                    return;
+                }
+                if (ex != null) {
+                    finish(ex);
+                    return;
+                }
+                startRevision = value;
+                fetch(null);
+            }, EDT);
+        }
+
+        private void fetch(RecipeSummary after) {
+            CompletableFuture<List<RecipeSummary>> page = repository.listSummaryPage(after, batchSize);
+            pending = page;
+            page.whenCompleteAsync((recipes, ex) -> {
+                if (cancelled) {
+                    return;
+                }
+                if (ex != null) {
+                    finish(ex);
+                    return;
+                }
+                boolean lastPage = recipes.size() < batchSize;
+                if (!lastPage) {
+                    fetch(recipes.get(recipes.size() - 1));
+                }
+                apply(recipes);
+                if (lastPage) {
+                    finish(null);
+                }
+            }, EDT);
+        }
+
+        private void apply(List<RecipeSummary> page) {
+            if (page.isEmpty()) {
+                return;
+            }
+            if (firstPage) {
+                catalog.rebuild(page);
+                firstPage = false;
+            } else {
+                catalog.addAll(page);
+            }
+            applyFilter();
+            listPanel.setLoading(true, catalog.size());
+        }
+
+        private void finish(Throwable error) {
+            done = true;
+            if (error != null) {
+                showError("Unable to load recipes: " + describe(error));
+            } else {
+                if (firstPage) {
+                    catalog.rebuild(List.of());
+                    applyFilter();
+                }
+                catalogRevision = startRevision;
+            }
+            listPanel.setLoading(false, catalog.size());
+            refreshEditorReferences();
+            if (error == null) {
+                applyRecipeChanges();
+                indexRecipeText();
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            if (pending != null) {
+                pending.cancel(true);
+            }
+        }
+
+        private boolean isDone() {
+            return done;
         }
     }
 
-    private Map<ObjectId, String> buildRecipeNameLookup() {
-        Map<ObjectId, String> lookup = new HashMap<>();
-        for (Recipe recipe : allRecipes) {
-            if (recipe != null && recipe.getId() != null) {
-                lookup.put(recipe.getId(), Objects.toString(recipe.getName(), recipe.getId().toHexString()));
+    // Pages are indexed on the I/O thread; saves and deltas that land meanwhile win on revision.
+    private final class TextIndexer {
+        private final int batchSize;
+        private volatile boolean cancelled;
+        private CompletableFuture<?> pending;
+
+        private TextIndexer(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        private void fetch(RecipeSummary after) {
+            CompletableFuture<List<Recipe>> page = repository.listPage(after, batchSize);
+            pending = page;
+            page.thenAccept(recipes -> {
+                if (!cancelled) {
+                    textIndex.putAll(recipes);
+                }
+            }).whenCompleteAsync((ignored, ex) -> {
+                if (cancelled) {
+                    return;
+                }
+                if (ex != null) {
+                    System.err.println("Unable to index recipe text: " + describe(ex));
+                    return;
+                }
+                // A full-text search typed before the index caught up would otherwise keep its partial results.
+                if (listPanel.getSelectedFilterType() == RecipeListPanel.FilterType.FULL_TEXT
+                        && !listPanel.getFilterText().isBlank()) {
+                    applyFilter();
+                }
+                // Short pages can come from recipes deleted mid-read, so only an empty one ends the run.
+                List<Recipe> recipes = page.join();
+                if (!recipes.isEmpty()) {
+                    fetch(RecipeSummary.of(recipes.get(recipes.size() - 1)));
+                }
+            }, EDT);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            if (pending != null) {
+                pending.cancel(true);
             }
         }
-        return lookup;
+    }
+
+    private record ExportTarget(File file, RecipeDumpFormat format) {
     }
 
     private record TabInfo(JPanel container, JLabel titleLabel) {
@@ -1,6 +1,8 @@
 package org.jhandron.ui;
 
+import org.jhandron.index.RecipeCatalog;
 import org.jhandron.model.Recipe;
+import org.jhandron.model.RecipeSummary;
 import org.bson.types.ObjectId;
 
 import javax.swing.BorderFactory;
@@ -16,11 +18,14 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 
 public class RecipeEditorPanel extends JPanel {
@@ -31,6 +36,8 @@ public class RecipeEditorPanel extends JPanel {
     private final JList<String> ingredientsList;
     private final JList<String> tagsList;
     private final JList<RelatedListItem> relatedList;
+    private final DefaultListModel<RelatedListItem> backlinkModel;
+    private final JList<RelatedListItem> backlinkList;
     private final JTextArea instructionsArea;
     private final JLabel modeBadge;
     private final JLabel modeDescription;
@@ -39,15 +46,16 @@ public class RecipeEditorPanel extends JPanel {
     private final JButton resetButton;
     private final JButton addRelatedButton;
     private final JButton removeRelatedButton;
+    private final JButton openRelatedButton;
     private ListControlGroup ingredientControls;
     private ListControlGroup tagControls;
     private Recipe currentRecipe;
-    private List<Recipe> knownRecipes = new ArrayList<>();
+    private RecipeCatalog catalog;
     private Consumer<Recipe> saveListener;
     private Consumer<Recipe> exportPdfListener;
     private Runnable resetListener;
     private RelatedSelector relatedSelector;
-    private Map<ObjectId, String> recipeNameLookup = new HashMap<>();
+    private Consumer<List<ObjectId>> relatedOpener;
 
     public RecipeEditorPanel() {
         setLayout(new GridBagLayout());
@@ -61,11 +69,31 @@ public class RecipeEditorPanel extends JPanel {
         ingredientsList = new JList<>(ingredientsModel);
         tagsList = new JList<>(tagsModel);
         relatedList = new JList<>(relatedModel);
+        backlinkModel = new DefaultListModel<>();
+        backlinkList = new JList<>(backlinkModel);
+        backlinkList.setToolTipText("Recipes that list this one as related. Double-click to open.");
+        backlinkList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && relatedOpener != null && !backlinkList.isSelectionEmpty()) {
+                    relatedOpener.accept(backlinkList.getSelectedValuesList().stream().map(RelatedListItem::id).toList());
+                }
+            }
+        });
         relatedList.addListSelectionListener(e -> updateRelatedActions());
+        relatedList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    openSelectedRelated();
+                }
+            }
+        });
 
         setCompactListRowHeight(ingredientsList);
         setCompactListRowHeight(tagsList);
         setCompactListRowHeight(relatedList);
+        setCompactListRowHeight(backlinkList);
 
         instructionsArea = new JTextArea(10, 40);
         instructionsArea.setLineWrap(true);
@@ -80,6 +108,7 @@ public class RecipeEditorPanel extends JPanel {
         resetButton = new JButton("Reset");
         addRelatedButton = new JButton("Add...");
         removeRelatedButton = new JButton("Remove");
+        openRelatedButton = new JButton("Open");
 
         GridBagConstraints constraints = new GridBagConstraints();
         constraints.gridx = 0;
@@ -201,7 +230,13 @@ public class RecipeEditorPanel extends JPanel {
         JPanel panel = new JPanel(new BorderLayout(4, 4));
         panel.setBorder(BorderFactory.createTitledBorder("Related Recipes"));
 
-        panel.add(new JScrollPane(relatedList), BorderLayout.CENTER);
+        JPanel lists = new JPanel(new GridLayout(2, 1, 4, 4));
+        lists.add(new JScrollPane(relatedList));
+        JPanel backlinkPanel = new JPanel(new BorderLayout(2, 2));
+        backlinkPanel.add(new JLabel("Linked from"), BorderLayout.NORTH);
+        backlinkPanel.add(new JScrollPane(backlinkList), BorderLayout.CENTER);
+        lists.add(backlinkPanel);
+        panel.add(lists, BorderLayout.CENTER);
 
         JPanel controls = new JPanel();
         controls.setLayout(new BoxLayout(controls, BoxLayout.X_AXIS));
@@ -217,6 +252,9 @@ public class RecipeEditorPanel extends JPanel {
         controls.add(addRelatedButton);
         controls.add(Box.createHorizontalStrut(6));
         controls.add(removeRelatedButton);
+        openRelatedButton.addActionListener(e -> openSelectedRelated());
+        controls.add(Box.createHorizontalStrut(6));
+        controls.add(openRelatedButton);
         panel.add(controls, BorderLayout.SOUTH);
         return panel;
     }
@@ -271,14 +309,17 @@ public class RecipeEditorPanel extends JPanel {
         if (resetListener != null) {
             resetListener.run();
         } else if (currentRecipe != null) {
-            displayRecipe(currentRecipe, knownRecipes);
+            displayRecipe(currentRecipe);
         }
     }
 
-    public void displayRecipe(Recipe recipe, List<Recipe> knownRecipes) {
+    // Names of related recipes are looked up here when shown; the panel keeps no copy of the catalog.
+    public void setCatalog(RecipeCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public void displayRecipe(Recipe recipe) {
         this.currentRecipe = recipe;
-        this.knownRecipes = new ArrayList<>(knownRecipes);
-        updateLookup(knownRecipes);
         nameField.setText(recipe.getName() == null ? "" : recipe.getName());
 
         ingredientsModel.clear();
@@ -301,9 +342,7 @@ public class RecipeEditorPanel extends JPanel {
         updateSaveButtonState();
     }
 
-    public void updateKnownRecipes(List<Recipe> knownRecipes) {
-        this.knownRecipes = new ArrayList<>(knownRecipes);
-        updateLookup(knownRecipes);
+    public void refreshRelatedNames() {
         List<ObjectId> selectedIds = relatedList.getSelectedValuesList().stream()
                 .map(RelatedListItem::id)
                 .toList();
@@ -320,19 +359,36 @@ public class RecipeEditorPanel extends JPanel {
         updateRelatedActions();
     }
 
-    public ObjectId getCurrentRecipeId() {
-        return currentRecipe != null ? currentRecipe.getId() : null;
+    public void applyRecipeChanges(Collection<RecipeSummary> changes) {
+        Set<ObjectId> changedIds = new HashSet<>();
+        for (RecipeSummary r : changes) {
+            if (r.getId() != null) {
+                changedIds.add(r.getId());
+            }
+        }
+        for (int i = 0; i < relatedModel.size(); i++) {
+            ObjectId id = relatedModel.get(i).id();
+            if (changedIds.contains(id)) {
+                relatedModel.set(i, toRelatedItem(id));
+            }
+        }
+        updateRelatedActions();
     }
 
-    private void updateLookup(List<Recipe> recipes) {
-        recipeNameLookup.clear();
-        for (Recipe r : recipes) {
-            if (r.getId() != null) {
-                recipeNameLookup.put(r.getId(), Objects.toString(r.getName(), r.getId().toHexString()));
+    public void setBacklinks(List<RecipeSummary> sources) {
+        backlinkModel.clear();
+        for (RecipeSummary source : sources) {
+            if (source.getId() != null) {
+                backlinkModel.addElement(new RelatedListItem(source.getId(),
+                        Objects.toString(source.getName(), source.getId().toHexString())));
             }
         }
     }
 
+    public ObjectId getCurrentRecipeId() {
+        return currentRecipe != null ? currentRecipe.getId() : null;
+    }
+
     private void addRelatedRecipes() {
         if (relatedSelector == null) {
             JOptionPane.showMessageDialog(this, "No related recipe selector available.", "Unavailable", JOptionPane.WARNING_MESSAGE);
@@ -350,7 +406,8 @@ public class RecipeEditorPanel extends JPanel {
     }
 
     private RelatedListItem toRelatedItem(ObjectId id) {
-        String label = recipeNameLookup.getOrDefault(id, id.toHexString());
+        String name = catalog == null ? null : catalog.getName(id);
+        String label = name != null ? name : id.toHexString();
         return new RelatedListItem(id, label);
     }
 
@@ -435,11 +492,20 @@ public class RecipeEditorPanel extends JPanel {
     }
 
     private void updateRelatedActions() {
-        final boolean hasOptions = knownRecipes.stream()
-                .anyMatch(r -> r.getId() != null && (currentRecipe == null || !r.getId().equals(currentRecipe.getId())));
+        ObjectId currentId = currentRecipe != null ? currentRecipe.getId() : null;
+        final boolean hasOptions = catalog != null
+                && catalog.size() > (currentId != null && catalog.contains(currentId) ? 1 : 0);
         addRelatedButton.setEnabled(hasOptions);
         addRelatedButton.setToolTipText(hasOptions ? "Choose existing recipes to relate to this one." : "No other saved recipes to relate yet.");
         removeRelatedButton.setEnabled(!relatedList.isSelectionEmpty());
+        openRelatedButton.setEnabled(relatedOpener != null && !relatedList.isSelectionEmpty());
+    }
+
+    private void openSelectedRelated() {
+        if (relatedOpener == null || relatedList.isSelectionEmpty()) {
+            return;
+        }
+        relatedOpener.accept(relatedList.getSelectedValuesList().stream().map(RelatedListItem::id).toList());
     }
 
     private void updateSaveButtonState() {
@@ -474,6 +540,11 @@ public class RecipeEditorPanel extends JPanel {
         this.relatedSelector = selector;
     }
 
+    public void setRelatedOpener(Consumer<List<ObjectId>> relatedOpener) {
+        this.relatedOpener = relatedOpener;
+        updateRelatedActions();
+    }
+
     private record RelatedListItem(ObjectId id, String label) {
         @Override
         public String toString() {
@@ -0,0 +1,63 @@
+package org.jhandron.ui;
+
+import org.bson.types.ObjectId;
+import org.jhandron.index.RecipeCatalog;
+import org.jhandron.model.RecipeSummary;
+
+import javax.swing.AbstractListModel;
+import java.util.Collections;
+import java.util.List;
+
+// Wraps the catalog's list without copying it. Name-ordered lists are searched by binary search.
+final class RecipeListModel extends AbstractListModel<RecipeSummary> {
+    // Lists over the whole catalog need fixed row sizes, or Swing measures every recipe to lay them out.
+    static final RecipeSummary PROTOTYPE = new RecipeSummary(null, "A fairly long recipe name to size rows",
+            List.of(), List.of(), List.of(), 0);
+
+    private List<RecipeSummary> recipes = List.of();
+
+    void setRecipes(List<RecipeSummary> recipes) {
+        int previous = this.recipes.size();
+        this.recipes = recipes;
+        if (previous > 0) {
+            fireIntervalRemoved(this, 0, previous - 1);
+        }
+        if (!recipes.isEmpty()) {
+            fireIntervalAdded(this, 0, recipes.size() - 1);
+        }
+    }
+
+    int indexOf(RecipeSummary recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return -1;
+        }
+        int index = Collections.binarySearch(recipes, recipe, RecipeCatalog.NAME_ORDER);
+        if (index >= 0 && recipe.getId().equals(recipes.get(index).getId())) {
+            return index;
+        }
+        // Renamed since it was handed out, or the list is not in name order.
+        return indexOf(recipe.getId());
+    }
+
+    int indexOf(ObjectId id) {
+        if (id == null) {
+            return -1;
+        }
+        for (int i = 0; i < recipes.size(); i++) {
+            if (id.equals(recipes.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSize() {
+        return recipes.size();
+    }
+
+    @Override
+    public RecipeSummary getElementAt(int index) {
+        return recipes.get(index);
+    }
+}
@@ -1,13 +1,15 @@
 package org.jhandron.ui;
 
-import org.jhandron.model.Recipe;
+import org.bson.types.ObjectId;
+import org.jhandron.model.RecipeFacets;
+import org.jhandron.model.RecipeSummary;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
-import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.ButtonGroup;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.Icon;
 import javax.swing.JLabel;
 import javax.swing.JList;
@@ -18,13 +20,14 @@ import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import java.awt.AlphaComposite;
 import java.awt.BorderLayout;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.ActionListener;
 import java.util.List;
-import org.bson.types.ObjectId;
+import java.util.Map;
 import com.formdev.flatlaf.FlatClientProperties;
 import com.formdev.flatlaf.extras.FlatSVGIcon;
 
@@ -33,17 +36,26 @@ public class RecipeListPanel extends JPanel {
     public enum FilterType {
         NAME,
         INGREDIENTS,
-        TAGS
+        TAGS,
+        FUZZY,
+        FULL_TEXT,
+        PANTRY
     }
 
     private final JTextField filterField;
     private final JRadioButton nameRadio;
     private final JRadioButton ingredientsRadio;
     private final JRadioButton tagsRadio;
-    private final DefaultListModel<Recipe> listModel;
-    private final JList<Recipe> recipeJList;
+    private final JRadioButton fuzzyRadio;
+    private final JRadioButton fullTextRadio;
+    private final JRadioButton pantryRadio;
+    private final RecipeListModel listModel;
+    private final JList<RecipeSummary> recipeJList;
     private final JButton newRecipeButton;
+    private final JLabel listHeader;
+    private final FacetPanel facetPanel;
     private Runnable filterChangeListener;
+    private Map<ObjectId, String> rowNotes = Map.of();
 
     public RecipeListPanel() {
         setLayout(new BorderLayout(8, 8));
@@ -57,11 +69,21 @@ public class RecipeListPanel extends JPanel {
         nameRadio = new JRadioButton("Name");
         ingredientsRadio = new JRadioButton("Ingredients");
         tagsRadio = new JRadioButton("Tags");
+        fuzzyRadio = new JRadioButton("Fuzzy");
+        fuzzyRadio.setToolTipText("Match names and ingredients despite small typos or missing accents.");
+        fullTextRadio = new JRadioButton("Full text");
+        fullTextRadio.setToolTipText("Rank recipes by how well their name, ingredients and instructions match. "
+                + "Quote words to match them as a phrase.");
+        pantryRadio = new JRadioButton("Pantry");
+        pantryRadio.setToolTipText("List what you have, separated by commas, to find recipes needing little else.");
         nameRadio.setSelected(true);
         ButtonGroup filterGroup = new ButtonGroup();
         filterGroup.add(nameRadio);
         filterGroup.add(ingredientsRadio);
         filterGroup.add(tagsRadio);
+        filterGroup.add(fuzzyRadio);
+        filterGroup.add(fullTextRadio);
+        filterGroup.add(pantryRadio);
 
         JPanel searchPanel = new JPanel();
         searchPanel.setLayout(new BoxLayout(searchPanel, BoxLayout.Y_AXIS));
@@ -71,9 +93,13 @@ public class RecipeListPanel extends JPanel {
         searchPanel.add(Box.createVerticalStrut(6));
         searchPanel.add(buildFilterFieldPanel());
 
-        listModel = new DefaultListModel<>();
+        listHeader = new JLabel();
+        listModel = new RecipeListModel();
         recipeJList = new JList<>(listModel);
         recipeJList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        recipeJList.setPrototypeCellValue(RecipeListModel.PROTOTYPE);
+        recipeJList.setCellRenderer(new NotedCellRenderer());
+        facetPanel = new FacetPanel(this::applyFacet);
 
         JPanel newRecipePanel = new JPanel(new BorderLayout(6, 6));
         newRecipePanel.setBorder(BorderFactory.createTitledBorder("Start a new recipe"));
@@ -99,6 +125,9 @@ public class RecipeListPanel extends JPanel {
         panel.add(nameRadio);
         panel.add(ingredientsRadio);
         panel.add(tagsRadio);
+        panel.add(fuzzyRadio);
+        panel.add(fullTextRadio);
+        panel.add(pantryRadio);
         enforceFullWidth(panel);
         return panel;
     }
@@ -116,14 +145,33 @@ public class RecipeListPanel extends JPanel {
         panel.setAlignmentX(LEFT_ALIGNMENT);
     }
 
-    public void updateList(List<Recipe> recipes) {
-        listModel.clear();
-        for (Recipe recipe : recipes) {
-            listModel.addElement(recipe);
+    public void updateList(List<RecipeSummary> recipes) {
+        updateList(recipes, Map.of());
+    }
+
+    public void updateList(List<RecipeSummary> recipes, Map<ObjectId, String> notes) {
+        RecipeSummary selected = recipeJList.getSelectedValue();
+        rowNotes = notes;
+        listModel.setRecipes(recipes);
+        if (selected != null) {
+            int index = listModel.indexOf(selected);
+            if (index >= 0) {
+                recipeJList.setSelectedIndex(index);
+            }
         }
     }
 
-    public Recipe getSelectedRecipe() {
+    public void updateFacets(RecipeFacets facets) {
+        facetPanel.setFacets(facets);
+    }
+
+    public void setLoading(boolean loading, int loadedCount) {
+        listHeader.setText(loading
+                ? "Existing recipes (loading... " + loadedCount + " so far)"
+                : "Existing recipes (select to view or edit)");
+    }
+
+    public RecipeSummary getSelectedRecipe() {
         return recipeJList.getSelectedValue();
     }
 
@@ -142,6 +190,15 @@ public class RecipeListPanel extends JPanel {
         if (tagsRadio.isSelected()) {
             return FilterType.TAGS;
         }
+        if (fuzzyRadio.isSelected()) {
+            return FilterType.FUZZY;
+        }
+        if (fullTextRadio.isSelected()) {
+            return FilterType.FULL_TEXT;
+        }
+        if (pantryRadio.isSelected()) {
+            return FilterType.PANTRY;
+        }
         return FilterType.NAME;
     }
 
@@ -167,29 +224,34 @@ public class RecipeListPanel extends JPanel {
         notifyFilterChange();
     }
 
-    public void selectRecipeById(ObjectId id) {
-        if (id == null) {
-            return;
-        }
-        for (int i = 0; i < listModel.size(); i++) {
-            Recipe recipe = listModel.get(i);
-            if (id.equals(recipe.getId())) {
-                recipeJList.setSelectedIndex(i);
-                recipeJList.ensureIndexIsVisible(i);
-                break;
-            }
+    public void selectRecipe(RecipeSummary recipe) {
+        int index = listModel.indexOf(recipe);
+        if (index >= 0) {
+            recipeJList.setSelectedIndex(index);
+            recipeJList.ensureIndexIsVisible(index);
         }
     }
 
     private JPanel buildListSection() {
         JPanel panel = new JPanel(new BorderLayout(6, 6));
-        JLabel header = new JLabel("Existing recipes (select to view or edit)");
-        header.setBorder(BorderFactory.createEmptyBorder(4, 2, 4, 2));
-        panel.add(header, BorderLayout.NORTH);
+        setLoading(false, 0);
+        listHeader.setBorder(BorderFactory.createEmptyBorder(4, 2, 4, 2));
+        panel.add(listHeader, BorderLayout.NORTH);
         panel.add(new JScrollPane(recipeJList), BorderLayout.CENTER);
+        panel.add(facetPanel, BorderLayout.SOUTH);
         return panel;
     }
 
+    // Tags are matched all together, so a picked tag adds to the ones already filtered on; anything else replaces.
+    private void applyFacet(FilterType type, String value) {
+        String current = getFilterText();
+        boolean narrowing = type == FilterType.TAGS && tagsRadio.isSelected() && !current.isBlank();
+        // Setting the text passes through blank, which selects Name, so the type is picked afterwards.
+        filterField.setText(narrowing ? current + ", " + value : value);
+        (type == FilterType.TAGS ? tagsRadio : ingredientsRadio).setSelected(true);
+        notifyFilterChange();
+    }
+
     private void attachFilterListeners() {
         filterField.getDocument().addDocumentListener((SimpleDocumentListener) e -> {
             if (getFilterText().isBlank()) {
@@ -201,6 +263,9 @@ public class RecipeListPanel extends JPanel {
         nameRadio.addActionListener(filterTypeListener);
         ingredientsRadio.addActionListener(filterTypeListener);
         tagsRadio.addActionListener(filterTypeListener);
+        fuzzyRadio.addActionListener(filterTypeListener);
+        fullTextRadio.addActionListener(filterTypeListener);
+        pantryRadio.addActionListener(filterTypeListener);
     }
 
     private void notifyFilterChange() {
@@ -209,6 +274,19 @@ public class RecipeListPanel extends JPanel {
         }
     }
 
+    private final class NotedCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                      boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            String note = value instanceof RecipeSummary recipe ? rowNotes.get(recipe.getId()) : null;
+            if (note != null) {
+                setText(value + "  \u2014  " + note);
+            }
+            return this;
+        }
+    }
+
     private static class AlphaIcon implements Icon {
         private final Icon delegate;
         private final float alpha;
@@ -1,9 +1,12 @@
 package org.jhandron.ui;
 
-import org.jhandron.model.Recipe;
+import org.jhandron.index.RecipeCatalog;
+import org.jhandron.model.RecipeSummary;
+import org.jhandron.model.SimilarRecipe;
 import org.bson.types.ObjectId;
 
 import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -14,27 +17,41 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import java.awt.BorderLayout;
+import java.awt.Component;
 import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class RelatedRecipeDialog extends JDialog {
-    private final DefaultListModel<Recipe> listModel = new DefaultListModel<>();
-    private final JList<Recipe> recipeJList = new JList<>(listModel);
-    private List<Recipe> availableRecipes;
+    private static final int SUGGESTION_COUNT = 10;
+
+    private final DefaultListModel<RecipeSummary> listModel = new DefaultListModel<>();
+    private final JList<RecipeSummary> recipeJList = new JList<>(listModel);
+    private final RecipeCatalog catalog;
+    private final ObjectId currentId;
+    private final List<RecipeSummary> suggestions = new ArrayList<>();
+    private final Map<ObjectId, Double> similarity = new HashMap<>();
     private List<ObjectId> selectedIds = new ArrayList<>();
 
-    public RelatedRecipeDialog(Frame owner, List<Recipe> availableRecipes, ObjectId currentId, List<ObjectId> preselected) {
+    public RelatedRecipeDialog(Frame owner, RecipeCatalog catalog, ObjectId currentId, List<ObjectId> preselected) {
         super(owner, "Select Related Recipes", true);
-        this.availableRecipes = filterAvailable(availableRecipes, currentId);
+        this.catalog = catalog;
+        this.currentId = currentId;
+        for (SimilarRecipe similar : catalog.findSimilar(currentId, SUGGESTION_COUNT)) {
+            suggestions.add(similar.recipe());
+            similarity.put(similar.recipe().getId(), similar.similarity());
+        }
         setLayout(new BorderLayout(8, 8));
         setSize(400, 450);
         setLocationRelativeTo(owner);
         add(buildFilterPanel(), BorderLayout.NORTH);
         recipeJList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        recipeJList.setCellRenderer(new SuggestionRenderer());
         add(new JScrollPane(recipeJList), BorderLayout.CENTER);
         add(buildActions(), BorderLayout.SOUTH);
         refreshList("");
@@ -61,7 +78,7 @@ public class RelatedRecipeDialog extends JDialog {
         JButton save = new JButton("Save");
         save.addActionListener(e -> {
             selectedIds = recipeJList.getSelectedValuesList().stream()
-                    .map(Recipe::getId)
+                    .map(RecipeSummary::getId)
                     .collect(Collectors.toList());
             dispose();
         });
@@ -70,12 +87,18 @@ public class RelatedRecipeDialog extends JDialog {
         return panel;
     }
 
+    // Without a filter, recipes like the current one come first, most alike at the top.
     private void refreshList(String filter) {
-        String normalized = filter == null ? "" : filter.toLowerCase(Locale.ROOT);
+        boolean unfiltered = filter == null || filter.isBlank();
+        List<RecipeSummary> matches = unfiltered ? catalog.recipes() : catalog.findByName(filter);
         listModel.clear();
-        for (Recipe r : availableRecipes) {
-            String name = displayName(r);
-            if (normalized.isEmpty() || name.toLowerCase(Locale.ROOT).contains(normalized)) {
+        if (unfiltered) {
+            for (RecipeSummary r : suggestions) {
+                listModel.addElement(r);
+            }
+        }
+        for (RecipeSummary r : filterAvailable(matches)) {
+            if (!unfiltered || !similarity.containsKey(r.getId())) {
                 listModel.addElement(r);
             }
         }
@@ -87,7 +110,7 @@ public class RelatedRecipeDialog extends JDialog {
         }
         List<Integer> indices = new ArrayList<>();
         for (int i = 0; i < listModel.getSize(); i++) {
-            Recipe recipe = listModel.get(i);
+            RecipeSummary recipe = listModel.get(i);
             if (preselected.contains(recipe.getId())) {
                 indices.add(i);
             }
@@ -96,19 +119,32 @@ public class RelatedRecipeDialog extends JDialog {
         recipeJList.setSelectedIndices(idxArr);
     }
 
-    private List<Recipe> filterAvailable(List<Recipe> recipes, ObjectId currentId) {
+    private List<RecipeSummary> filterAvailable(List<RecipeSummary> recipes) {
         return recipes.stream()
                 .filter(r -> r.getId() != null)
                 .filter(r -> currentId == null || !r.getId().equals(currentId))
-                .sorted((a, b) -> displayName(a).compareToIgnoreCase(displayName(b)))
+                .sorted(Comparator.comparing(this::displayName, String.CASE_INSENSITIVE_ORDER))
                 .toList();
     }
 
-    private String displayName(Recipe recipe) {
+    private String displayName(RecipeSummary recipe) {
         return recipe.getName() == null ? "(untitled recipe)" : recipe.getName();
     }
 
     public List<ObjectId> getSelectedIds() {
         return selectedIds;
     }
+
+    private final class SuggestionRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                      boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            Double score = value instanceof RecipeSummary recipe ? similarity.get(recipe.getId()) : null;
+            if (score != null) {
+                setText(displayName((RecipeSummary) value) + "  (" + Math.round(score * 100) + "% alike)");
+            }
+            return this;
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package org.jhandron.index;
+
+import org.bson.types.ObjectId;
+import org.jhandron.model.Recipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FullTextIndexTest {
+
+    @Test
+    void repeatedSavesReuseDocSlotsAfterCompaction() {
+        FullTextIndex index = new FullTextIndex();
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(new ObjectId());
+        }
+        for (int round = 1; round <= 50; round++) {
+            for (int i = 0; i < ids.size(); i++) {
+                index.put(recipe(ids.get(i), round, "Soup " + i, "simmer the stock for " + round + " minutes"));
+            }
+        }
+        assertEquals(100, index.size());
+        assertTrue(index.docSlots() < 1200, "doc slots: " + index.docSlots());
+    }
+
+    @Test
+    void searchFindsTheLatestTextAfterCompaction() {
+        FullTextIndex index = new FullTextIndex();
+        ObjectId pancakes = new ObjectId();
+        ObjectId waffles = new ObjectId();
+        index.put(recipe(waffles, 1, "Waffles", "heat the iron"));
+        for (int round = 1; round <= 2000; round++) {
+            index.put(recipe(pancakes, round, "Pancakes", round == 2000 ? "flip them twice" : "flip them once"));
+        }
+        assertEquals(List.of(pancakes), hitIds(index.search("\"flip them twice\"", 10)));
+        assertEquals(List.of(), hitIds(index.search("\"flip them once\"", 10)));
+        assertEquals(List.of(waffles), hitIds(index.search("iron", 10)));
+        assertTrue(index.docSlots() < 1100, "doc slots: " + index.docSlots());
+    }
+
+    @Test
+    void editedRecipeStillRanksFirstForItsWords() {
+        FullTextIndex index = new FullTextIndex();
+        ObjectId bread = new ObjectId();
+        ObjectId soup = new ObjectId();
+        index.put(recipe(soup, 1, "Tomato Soup", "add one garlic clove"));
+        index.put(recipe(new ObjectId(), 1, "Pancakes", "flip them once"));
+        for (int round = 1; round <= 20; round++) {
+            index.put(recipe(bread, round, "Garlic Bread", "rub the garlic, more garlic, bake " + round + " minutes"));
+        }
+        List<ObjectId> hits = hitIds(index.search("garlic", 10));
+        assertEquals(List.of(bread, soup), hits);
+    }
+
+    private static List<ObjectId> hitIds(List<FullTextIndex.Hit> hits) {
+        return hits.stream().map(FullTextIndex.Hit::id).toList();
+    }
+
+    private static Recipe recipe(ObjectId id, long revision, String name, String instructions) {
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setRevision(revision);
+        recipe.setName(name);
+        recipe.setIngredients(List.of());
+        recipe.setTags(List.of());
+        recipe.setInstructions(instructions);
+        return recipe;
+    }
+}
@@ -0,0 +1,79 @@
+package org.jhandron.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedIntsTest {
+
+    @Test
+    void replacingTheOnlySliceWhenTheArrayIsFullKeepsTheNewSlice() {
+        PackedInts packed = new PackedInts();
+        int[] first = range(40, 0);
+        int[] second = range(40, 100);
+        packed.set(0, first);
+        packed.set(0, second);
+        assertArrayEquals(second, packed.toArray(0));
+    }
+
+    @Test
+    void replacingSlicesAcrossCompactionsKeepsEveryOtherSlice() {
+        PackedInts packed = new PackedInts();
+        packed.set(0, range(10, 0));
+        packed.set(1, range(50, 1000));
+        packed.set(2, range(3, 2000));
+        for (int round = 0; round < 20; round++) {
+            packed.set(1, range(50 + round, round));
+        }
+        assertArrayEquals(range(10, 0), packed.toArray(0));
+        assertArrayEquals(range(69, 19), packed.toArray(1));
+        assertArrayEquals(range(3, 2000), packed.toArray(2));
+    }
+
+    @Test
+    void matchesAPlainListUnderRandomReplacements() {
+        Random random = new Random(42);
+        PackedInts packed = new PackedInts();
+        List<int[]> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int slot = random.nextInt(300);
+            int[] slice = range(random.nextInt(random.nextInt(10) == 0 ? 500 : 20), random.nextInt(1000));
+            packed.set(slot, slice);
+            while (expected.size() <= slot) {
+                expected.add(new int[0]);
+            }
+            expected.set(slot, slice);
+        }
+        for (int slot = 0; slot < expected.size(); slot++) {
+            assertArrayEquals(expected.get(slot), packed.toArray(slot));
+        }
+        PackedInts copy = packed.copy();
+        copy.set(0, range(1000, 7));
+        for (int slot = 1; slot < expected.size(); slot++) {
+            assertArrayEquals(expected.get(slot), copy.toArray(slot));
+        }
+    }
+
+    @Test
+    void clearForgetsEverySlot() {
+        PackedInts packed = new PackedInts();
+        packed.set(3, range(5, 0));
+        packed.clear();
+        assertEquals(0, packed.length(3));
+        packed.set(0, range(2, 9));
+        assertArrayEquals(range(2, 9), packed.toArray(0));
+    }
+
+    private static int[] range(int length, int start) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = start + i;
+        }
+        return values;
+    }
+}
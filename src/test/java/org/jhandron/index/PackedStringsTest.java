@@ -0,0 +1,73 @@
+package org.jhandron.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedStringsTest {
+
+    @Test
+    void replacingALongStringWhenTheArrayIsFullKeepsTheNewString() {
+        PackedStrings packed = new PackedStrings();
+        String first = "a".repeat(131);
+        String second = "b".repeat(131);
+        packed.set(0, first);
+        packed.set(0, second);
+        assertEquals(second, packed.get(0));
+    }
+
+    @Test
+    void replacingWithNullFreesTheOldString() {
+        PackedStrings packed = new PackedStrings();
+        packed.set(0, "x".repeat(200));
+        packed.set(1, "kept");
+        packed.set(0, null);
+        packed.set(2, "y".repeat(200));
+        assertTrue(packed.isNull(0));
+        assertNull(packed.get(0));
+        assertEquals("kept", packed.get(1));
+        assertEquals("y".repeat(200), packed.get(2));
+    }
+
+    @Test
+    void matchesAPlainListUnderRandomReplacements() {
+        Random random = new Random(7);
+        PackedStrings packed = new PackedStrings();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int slot = random.nextInt(300);
+            String value = random.nextInt(20) == 0 ? null
+                    : "récipe ".repeat(random.nextInt(random.nextInt(10) == 0 ? 60 : 4)) + i;
+            packed.set(slot, value);
+            while (expected.size() <= slot) {
+                expected.add(null);
+            }
+            expected.set(slot, value);
+        }
+        for (int slot = 0; slot < expected.size(); slot++) {
+            assertEquals(expected.get(slot), packed.get(slot));
+        }
+    }
+
+    @Test
+    void comparesAndSearchesTheStoredBytes() {
+        PackedStrings packed = new PackedStrings();
+        packed.set(0, "apple pie");
+        packed.set(1, "apple");
+        packed.set(2, "￿");
+        packed.set(3, "🍰");
+        assertTrue(packed.compare(1, 0) < 0);
+        assertTrue(packed.compare(0, 1) > 0);
+        assertEquals(0, packed.compare(0, 0));
+        assertEquals(Integer.signum("￿".compareTo("🍰")), Integer.signum(packed.compare(2, 3)));
+        assertTrue(packed.contains(0, PackedStrings.utf8("e p")));
+        assertFalse(packed.contains(1, PackedStrings.utf8("pie")));
+    }
+}
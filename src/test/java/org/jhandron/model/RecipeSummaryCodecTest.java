@@ -0,0 +1,49 @@
+package org.jhandron.model;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecipeSummaryCodecTest {
+    private final RecipeSummaryCodec codec = new RecipeSummaryCodec();
+
+    @Test
+    void encodedSummaryDecodesToTheSameFields() {
+        RecipeSummary summary = new RecipeSummary(new ObjectId(), "Pancakes", List.of("flour", "milk"),
+                List.of("breakfast"), List.of(new ObjectId()), 42);
+        RecipeSummary decoded = roundTrip(summary);
+        assertEquals(summary.getId(), decoded.getId());
+        assertEquals(summary.getName(), decoded.getName());
+        assertEquals(summary.getIngredients(), decoded.getIngredients());
+        assertEquals(summary.getTags(), decoded.getTags());
+        assertEquals(summary.getRelatedRecipeIds(), decoded.getRelatedRecipeIds());
+        assertEquals(summary.getRevision(), decoded.getRevision());
+    }
+
+    @Test
+    void missingNameAndRevisionSurviveTheRoundTrip() {
+        RecipeSummary summary = new RecipeSummary(new ObjectId(), null, List.of(), List.of(), List.of(), 0);
+        RecipeSummary decoded = roundTrip(summary);
+        assertEquals(null, decoded.getName());
+        assertEquals(0, decoded.getRevision());
+    }
+
+    private RecipeSummary roundTrip(RecipeSummary summary) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, summary, EncoderContext.builder().build());
+        }
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray()))) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.jhandron.repository;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecipeDumpFormatTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void detectsBsonWhoseLengthLooksLikeABrace() throws IOException {
+        // A 123-byte document starts with 0x7b, which is '{'.
+        byte[] document = bson("x".repeat(107));
+        assertEquals(123, document.length);
+        assertEquals(RecipeDumpFormat.BSON, RecipeDumpFormat.detect(write("brace.bson", document, document)));
+        assertEquals(RecipeDumpFormat.GZIP_BSON, RecipeDumpFormat.detect(write("brace.bson.gz", gzip(document))));
+    }
+
+    @Test
+    void detectsBsonWhoseLengthLooksLikeWhitespace() throws IOException {
+        // 32 bytes starts with a space.
+        byte[] document = bson("x".repeat(16));
+        assertEquals(32, document.length);
+        assertEquals(RecipeDumpFormat.BSON, RecipeDumpFormat.detect(write("space.bson", document)));
+    }
+
+    @Test
+    void detectsJsonLines() throws IOException {
+        byte[] json = "\n  {\"name\": \"Soup\"}\n{\"name\": \"Stew\"}\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(RecipeDumpFormat.JSON_LINES, RecipeDumpFormat.detect(write("recipes.json", json)));
+        assertEquals(RecipeDumpFormat.GZIP_JSON_LINES, RecipeDumpFormat.detect(write("recipes.json.gz", gzip(json))));
+        assertEquals(RecipeDumpFormat.JSON_LINES, RecipeDumpFormat.detect(write("empty.json")));
+    }
+
+    @Test
+    void treatsATruncatedDocumentAsText() throws IOException {
+        byte[] document = bson("x".repeat(200));
+        Path path = write("cut.bson", Arrays.copyOf(document, document.length - 1));
+        assertEquals(RecipeDumpFormat.JSON_LINES, RecipeDumpFormat.detect(path));
+    }
+
+    private static byte[] bson(String name) {
+        RawBsonDocument doc = new RawBsonDocument(new BsonDocument("name", new BsonString(name)),
+                new BsonDocumentCodec());
+        return Arrays.copyOf(doc.getByteBuffer().array(), doc.getByteBuffer().remaining());
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+
+    private Path write(String name, byte[]... parts) throws IOException {
+        Path path = dir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+        return path;
+    }
+}